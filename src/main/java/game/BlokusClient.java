@@ -8,6 +8,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileDescriptor;
@@ -15,9 +17,10 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.StreamCorruptedException;
 import java.net.Socket;
 
 import java.util.concurrent.atomic.AtomicReference;
@@ -25,8 +28,9 @@ import java.util.concurrent.atomic.AtomicReference;
 public class BlokusClient extends JFrame {
 
     private Socket socket;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private OutputStream out;
+    private final Object writeLock = new Object();
+    private InputStream in;
     private ClientReceiver receiver;
 
     private String username;
@@ -40,7 +44,19 @@ public class BlokusClient extends JFrame {
 
     private boolean handlingLoginFail = false;
 
+    // sendPlaceRequest 로 보낸 배치 요청의 ID. 가장 최근 요청에 대한 실패만 대화상자로 띄운다.
+    private int nextRequestId = 1;
+    private volatile String lastPlaceRequestId;
+
+    // LOGIN_SUCCESS 로 알게 된 서버 프로토콜 버전. 3 이상이면 점수판/방 목록에 버전이 붙어 오고,
+    // 마지막으로 받은 버전을 GET_ 요청에 실어 보내 바뀐 것이 없으면 NOT_MODIFIED 만 받는다.
+    private int serverVersion = 1;
+    private int leaderboardVersion = 0;
+    private int roomsVersion = 0;
+
     private static final String CONFIG_FILE = "src/main/resources/server.txt";
+    // 서버가 모르는 기능은 꺼진 채로 답이 오며, 그때는 GAME_STATE 같은 기존 메시지를 받는다.
+    private static final String CLIENT_CAPABILITIES = "DELTA,BINARY,DEFLATE,CLOCK,RTT";
 
     public BlokusClient() {
         setTitle("블로커스 (Blokus)");
@@ -141,7 +157,7 @@ public class BlokusClient extends JFrame {
             protected String doInBackground() throws Exception {
                 try {
                     connect(host, port);
-                    sendMessage(Protocol.C2S_LOGIN + ":" + username);
+                    sendMessage(Protocol.C2S_LOGIN + ":" + username + ":" + Protocol.VERSION + ":" + CLIENT_CAPABILITIES);
                     return "LOGIN_ATTEMPTED";
                 } catch (IOException e) {
                     return "CONNECT_FAILED:" + e.getMessage();
@@ -172,9 +188,12 @@ public class BlokusClient extends JFrame {
     private void connect(String host, int port) throws IOException {
         cleanupConnection();
         socket = new Socket(host, port);
-        out = new ObjectOutputStream(socket.getOutputStream());
-        out.flush();
-        in = new ObjectInputStream(socket.getInputStream());
+        synchronized (writeLock) {
+            out = new BufferedOutputStream(socket.getOutputStream());
+            FrameCodec.writeMagic(out);
+            out.flush();
+        }
+        in = new BufferedInputStream(socket.getInputStream());
         receiver = new ClientReceiver(in, this);
         receiver.start();
     }
@@ -198,14 +217,31 @@ public class BlokusClient extends JFrame {
     public void handleServerMessage(String message) {
         System.out.println("서버 (S2C): " + message);
         String[] parts = message.split(":", 2);
-        String command = parts[0];
+        int at = parts[0].indexOf(Protocol.REQUEST_ID_SEPARATOR);
+        String command = at < 0 ? parts[0] : parts[0].substring(0, at);
+        String requestId = at < 0 ? null : parts[0].substring(at + 1);
         String data = (parts.length > 1) ? parts[1] : null;
 
+        // 왕복 시간을 재는 PING 이므로 EDT 를 거치지 않고 받은 스레드에서 바로 토큰을 돌려준다.
+        if (command.equals(Protocol.S2C_PING)) {
+            sendMessage(data != null ? Protocol.C2S_PONG + ":" + data : Protocol.C2S_PONG);
+            return;
+        }
+
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
                 switch (command) {
+                    case Protocol.S2C_LATENCY:
+                        gameScreen.updateLatency(Integer.parseInt(data));
+                        break;
                     case Protocol.S2C_LOGIN_SUCCESS:
+                        // 버전을 알려 온 서버는 방 목록을 구독으로 밀어 준다. 기존 서버면 목록을 열 때마다 요청한다.
+                        serverVersion = data != null ? Integer.parseInt(data.split(":")[0]) : 1;
+                        leaderboardVersion = 0;
+                        roomsVersion = 0;
+                        lobbyScreen.setRoomsSubscribed(data != null);
+                        if (data != null) sendMessage(Protocol.C2S_SUBSCRIBE + ":" + Protocol.TOPIC_ROOMS);
                         username = loginScreen.getUsername();
                         cardLayout.show(mainPanel, "LOBBY");
                         loginScreen.setLoginControlsEnabled(true, " ");
@@ -217,11 +253,29 @@ public class BlokusClient extends JFrame {
                         break;
 
                     case Protocol.S2C_LEADERBOARD_DATA:
-                        lobbyScreen.updateLeaderboard(data);
+                        if (serverVersion >= 3 && data != null) {
+                            String[] versioned = data.split(":", 2);
+                            leaderboardVersion = Integer.parseInt(versioned[0]);
+                            lobbyScreen.updateLeaderboard(versioned[1]);
+                        } else {
+                            lobbyScreen.updateLeaderboard(data);
+                        }
                         break;
 
                     case Protocol.S2C_ROOM_LIST:
-                        lobbyScreen.updateRoomList(data);
+                        if (serverVersion >= 3 && data != null) {
+                            String[] versioned = data.split(":", 2);
+                            roomsVersion = Integer.parseInt(versioned[0]);
+                            lobbyScreen.updateRoomList(versioned[1]);
+                        } else {
+                            lobbyScreen.updateRoomList(data);
+                        }
+                        break;
+                    case Protocol.S2C_NOT_MODIFIED:
+                        // 지금 보이는 목록이 최신이다.
+                        break;
+                    case Protocol.S2C_ROOM_EVENT:
+                        lobbyScreen.applyRoomEvent(data);
                         break;
                     case Protocol.S2C_JOIN_SUCCESS:
                         roomScreen.setRoomName(data.split(":")[1]);
@@ -237,7 +291,7 @@ public class BlokusClient extends JFrame {
                     case Protocol.S2C_KICKED:
                         JOptionPane.showMessageDialog(BlokusClient.this, "방에서 강퇴당했습니다.", "알림", JOptionPane.INFORMATION_MESSAGE);
                         cardLayout.show(mainPanel, "LOBBY");
-                        sendMessage(Protocol.C2S_GET_LEADERBOARD);
+                        requestLeaderboard();
                         break;
                     case Protocol.S2C_GAME_START:
                         gameScreen.initializeGame(data);
@@ -252,14 +306,39 @@ public class BlokusClient extends JFrame {
                     case Protocol.S2C_GAME_STATE:
                         gameScreen.updateGameState(data);
                         break;
+                    case Protocol.S2C_TURN_UPDATE:
+                        gameScreen.updateTurn(data);
+                        break;
+                    case Protocol.S2C_BOARD_DELTA:
+                        if (gameScreen.applyBoardDelta(data)) {
+                            sendMessage(Protocol.C2S_RESYNC);
+                        }
+                        break;
                     case Protocol.S2C_HAND_UPDATE:
                         gameScreen.updatePlayerHand(data);
                         gameScreen.deselectPiece();
                         break;
+                    case Protocol.S2C_HAND_INIT:
+                        gameScreen.initHand(data);
+                        gameScreen.deselectPiece();
+                        break;
+                    case Protocol.S2C_HAND_REMOVE: {
+                        int slash = data.lastIndexOf('/');
+                        gameScreen.removePieceFromHand(data.substring(0, slash), Integer.parseInt(data.substring(slash + 1)));
+                        gameScreen.deselectPiece();
+                        break;
+                    }
                     case Protocol.S2C_TIME_UPDATE:
                         gameScreen.updateTimer(data);
                         break;
+                    case Protocol.S2C_CLOCK:
+                        gameScreen.applyClock(data);
+                        break;
                     case Protocol.S2C_INVALID_MOVE:
+                        if (isStaleReply(requestId)) {
+                            gameScreen.appendChatMessage("[시스템]:잘못된 이동: " + data);
+                            break;
+                        }
                         JOptionPane.showMessageDialog(BlokusClient.this, "잘못된 이동: " + data, "알림", JOptionPane.WARNING_MESSAGE);
                         break;
 
@@ -287,6 +366,10 @@ public class BlokusClient extends JFrame {
                         gameScreen.removePieceFromHand(pieceData[0], Integer.parseInt(pieceData[1]));
                         break;
                     case Protocol.S2C_PEERLESS_PLACE_FAIL:
+                        if (isStaleReply(requestId)) {
+                            gameScreen.appendChatMessage("[시스템]:배치 실패: " + data);
+                            break;
+                        }
                         JOptionPane.showMessageDialog(BlokusClient.this, "배치 실패: " + data, "알림", JOptionPane.WARNING_MESSAGE);
                         break;
                     case Protocol.S2C_PEERLESS_BOARD_UPDATE:
@@ -297,7 +380,7 @@ public class BlokusClient extends JFrame {
                         gameScreen.setGameFinished(true);
                         JOptionPane.showMessageDialog(BlokusClient.this, "게임 종료!\n" + data, "게임 종료", JOptionPane.INFORMATION_MESSAGE);
                         cardLayout.show(mainPanel, "LOBBY");
-                        sendMessage(Protocol.C2S_GET_LEADERBOARD);
+                        requestLeaderboard();
                         break;
                     case Protocol.S2C_CHAT:
                         roomScreen.appendChatMessage(data);
@@ -310,7 +393,7 @@ public class BlokusClient extends JFrame {
                     case Protocol.S2C_SYSTEM_MSG:
                         if (data != null && data.contains("로비로")) {
                             cardLayout.show(mainPanel, "LOBBY");
-                            sendMessage(Protocol.C2S_GET_LEADERBOARD);
+                            requestLeaderboard();
                         }
                         String sysMsg = "[시스템]:" + data;
                         roomScreen.appendChatMessage(sysMsg);
@@ -321,14 +404,54 @@ public class BlokusClient extends JFrame {
         });
     }
 
+    // 보드 스냅샷은 문자열을 거치지 않고 EDT 에서 보드 배열에 바로 푼다.
+    public void handleBoardFrame(byte[] body) {
+        SwingUtilities.invokeLater(() -> {
+            if (gameScreen.applyBoardSnapshot(body)) {
+                sendMessage(Protocol.C2S_RESYNC);
+            }
+        });
+    }
+
+    // 이미 다음 배치를 보낸 뒤에 도착한 이전 배치의 응답인지
+    private boolean isStaleReply(String requestId) {
+        return requestId != null && !requestId.equals(lastPlaceRequestId);
+    }
+
+    // 명령어 뒤에 요청 ID 를 붙여 보낸다. 응답을 기다리지 않고 다음 명령을 이어 보내도 된다.
+    // 화면은 EDT 에서만 갱신되므로 버전도 EDT 에서만 읽고 쓴다.
+    public void requestLeaderboard() {
+        sendMessage(serverVersion >= 3 && leaderboardVersion > 0
+                ? Protocol.C2S_GET_LEADERBOARD + ":" + leaderboardVersion : Protocol.C2S_GET_LEADERBOARD);
+    }
+
+    public void requestRoomList() {
+        sendMessage(serverVersion >= 3 && roomsVersion > 0
+                ? Protocol.C2S_GET_ROOM_LIST + ":" + roomsVersion : Protocol.C2S_GET_ROOM_LIST);
+    }
+
+    public synchronized void sendPlaceRequest(String msg) {
+        String id = Integer.toString(nextRequestId++);
+        lastPlaceRequestId = id;
+        int colon = msg.indexOf(':');
+        sendMessage(msg.substring(0, colon) + Protocol.REQUEST_ID_SEPARATOR + id + msg.substring(colon));
+    }
+
+    // EDT 와 수신 스레드(PONG)가 함께 보내므로 쓰기만 따로 잠근다.
+    // 연결 끊김 처리는 대화상자를 띄우므로 잠금 밖에서, 항상 EDT 에서 한다.
     public void sendMessage(String msg) {
-        if (out != null) {
-            try {
-                out.writeObject(msg);
+        try {
+            synchronized (writeLock) {
+                if (out == null) return;
+                FrameCodec.writeFrame(out, msg);
                 out.flush();
-            } catch (IOException e) {
-                System.err.println("C2S Send Error: " + e.getMessage());
+            }
+        } catch (IOException e) {
+            System.err.println("C2S Send Error: " + e.getMessage());
+            if (SwingUtilities.isEventDispatchThread()) {
                 handleConnectionLost();
+            } else {
+                SwingUtilities.invokeLater(this::handleConnectionLost);
             }
         }
     }
@@ -352,10 +475,11 @@ public class BlokusClient extends JFrame {
 }
 
 class ClientReceiver extends Thread {
-    private final ObjectInputStream in;
+    private final InputStream in;
     private final BlokusClient client;
+    private FrameDeflate.Decompressor decompressor;
 
-    public ClientReceiver(ObjectInputStream in, BlokusClient client) {
+    public ClientReceiver(InputStream in, BlokusClient client) {
         this.in = in;
         this.client = client;
     }
@@ -363,12 +487,23 @@ class ClientReceiver extends Thread {
     @Override
     public void run() {
         try {
-            String message;
-            while ((message = (String) in.readObject()) != null) {
-                client.handleServerMessage(message);
+            byte[] body;
+            while ((body = FrameCodec.readBody(in)) != null) {
+                if (body[0] == FrameCodec.OP_DEFLATE) {
+                    if (decompressor == null) decompressor = new FrameDeflate.Decompressor();
+                    body = decompressor.inflate(body);
+                }
+                switch (body[0]) {
+                    case FrameCodec.OP_TEXT:
+                        client.handleServerMessage(FrameCodec.text(body));
+                        break;
+                    case FrameCodec.OP_BOARD:
+                        client.handleBoardFrame(body);
+                        break;
+                    default:
+                        throw new StreamCorruptedException("알 수 없는 opcode: " + body[0]);
+                }
             }
-        } catch (ClassNotFoundException e) {
-            System.err.println("잘못된 객체 수신: " + e.getMessage());
         } catch (IOException e) {
         } finally {
             client.handleConnectionLost();
@@ -447,6 +582,8 @@ class LobbyScreen extends JPanel {
     private final JList<String> roomList;
     private final DefaultListModel<String> roomListModel;
 
+    private boolean roomsSubscribed = false;
+
     private static final String LEADERBOARD_PANEL = "LEADERBOARD";
     private static final String ROOM_LIST_PANEL = "ROOM_LIST";
 
@@ -488,7 +625,7 @@ class LobbyScreen extends JPanel {
         refreshLeaderboardButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                client.sendMessage(Protocol.C2S_GET_LEADERBOARD);
+                client.requestLeaderboard();
             }
         });
 
@@ -542,7 +679,7 @@ class LobbyScreen extends JPanel {
         refreshRoomsButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                client.sendMessage(Protocol.C2S_GET_ROOM_LIST);
+                client.requestRoomList();
             }
         });
 
@@ -583,10 +720,14 @@ class LobbyScreen extends JPanel {
     }
 
     private void showRoomList() {
-        client.sendMessage(Protocol.C2S_GET_ROOM_LIST);
+        if (!roomsSubscribed) client.requestRoomList();
         cardLayout.show(this, ROOM_LIST_PANEL);
     }
 
+    public void setRoomsSubscribed(boolean subscribed) {
+        this.roomsSubscribed = subscribed;
+    }
+
     private void joinSelectedRoom() {
         String selected = roomList.getSelectedValue();
         if (selected != null && selected.startsWith("[ID:")) {
@@ -633,13 +774,54 @@ class LobbyScreen extends JPanel {
         String[] rooms = data.split(";");
         for (String room : rooms) {
             if (room.isBlank()) continue;
-            String roomInfo = room.substring(1, room.length() - 1);
-            String[] parts = roomInfo.split(",");
-            if (parts.length >= 4) {
-                String modeDisplay = parts[3].equalsIgnoreCase("PEERLESS") ? "피어리스" : "클래식";
-                roomListModel.addElement(String.format("[ID:%s] %s (%s) - %s", parts[0], parts[1], parts[2], modeDisplay));
+            String display = formatRoom(room);
+            if (display != null) roomListModel.addElement(display);
+        }
+    }
+
+    // ROOM_EVENT:ADD|UPDATE:[id,이름,인원/4,모드] 또는 ROOM_EVENT:REMOVE:id. 해당 줄만 고친다.
+    public void applyRoomEvent(String data) {
+        if (data == null) return;
+        String[] parts = data.split(":", 2);
+        if (parts.length < 2) return;
+
+        String roomId;
+        String display = null;
+        if (parts[0].equals("REMOVE")) {
+            roomId = parts[1];
+        } else {
+            display = formatRoom(parts[1]);
+            if (display == null) return;
+            roomId = parts[1].substring(1, parts[1].indexOf(','));
+        }
+
+        String prefix = "[ID:" + roomId + "]";
+        int index = -1;
+        for (int i = 0; i < roomListModel.size(); i++) {
+            if (roomListModel.get(i).startsWith(prefix)) {
+                index = i;
+                break;
             }
         }
+
+        if (display == null) {
+            if (index >= 0) roomListModel.remove(index);
+            if (roomListModel.isEmpty()) roomListModel.addElement("생성된 방이 없습니다.");
+        } else if (index >= 0) {
+            roomListModel.set(index, display);
+        } else {
+            if (roomListModel.size() == 1 && !roomListModel.get(0).startsWith("[ID:")) roomListModel.clear();
+            roomListModel.addElement(display);
+        }
+    }
+
+    // [id,이름,인원/4,모드] -> 목록에 보일 문자열
+    private String formatRoom(String room) {
+        if (room.length() < 2) return null;
+        String[] parts = room.substring(1, room.length() - 1).split(",");
+        if (parts.length < 4) return null;
+        String modeDisplay = parts[3].equalsIgnoreCase("PEERLESS") ? "피어리스" : "클래식";
+        return String.format("[ID:%s] %s (%s) - %s", parts[0], parts[1], parts[2], modeDisplay);
     }
 }
 
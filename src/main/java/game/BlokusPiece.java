@@ -48,6 +48,14 @@ public class BlokusPiece implements Serializable {
         SHAPE_DATA.put("Y", new int[][]{{1, 1, 1, 1}, {0, 1, 0, 0}});
     }
 
+    // ALL_PIECE_IDS 안의 위치. HAND_INIT 비트마스크의 비트 번호로 쓴다. 없으면 -1
+    public static int indexOf(String id) {
+        for (int i = 0; i < ALL_PIECE_IDS.length; i++) {
+            if (ALL_PIECE_IDS[i].equals(id)) return i;
+        }
+        return -1;
+    }
+
     private String id;
     private int[][] shape;
     private int color;
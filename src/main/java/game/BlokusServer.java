@@ -1,5 +1,6 @@
 package game;
 
+import java.io.BufferedOutputStream;
 import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -14,14 +15,59 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class BlokusServer {
     private static final int PORT = 12345;
 
+    // -Dblokus.io=nio|thread|virtual 로 연결 처리 방식을 고른다.
+    enum IoMode { NIO, THREAD, VIRTUAL }
+    private static final IoMode IO_MODE = IoMode.valueOf(System.getProperty("blokus.io", "nio").toUpperCase());
+    private static final int IO_LOOPS = Integer.getInteger("blokus.io.loops",
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    // ServerMetrics 출력 주기(초). 0 이면 출력하지 않는다.
+    private static final int METRICS_INTERVAL_SECONDS = Integer.getInteger("blokus.metrics.interval", 60);
+
+    // 하트비트, 방의 턴/페이즈 시계 등 서버 전체의 타이머. 100ms tick, 512칸(한 바퀴 51.2초)
+    private final HashedWheelTimer timer = new HashedWheelTimer("blokus-timer", 100, TimeUnit.MILLISECONDS, 512);
+    // 방 메일박스를 돌리는 루프. 방은 만들어질 때 가장 한가한 루프에 묶인다. 방이 몇 개든 스레드 수는 같다.
+    private static final int ROOM_LOOPS = Integer.getInteger("blokus.room.loops", Runtime.getRuntime().availableProcessors());
+    private final RoomLoop[] roomLoops = startRoomLoops(ROOM_LOOPS);
+
     private ConcurrentHashMap<Integer, GameRoom> gameRooms = new ConcurrentHashMap<>();
     private ConcurrentHashMap<String, ClientHandler> lobbyClients = new ConcurrentHashMap<>();
+    // "rooms" 토픽을 구독하고 지금 로비에 있는 클라이언트. 방 목록이 바뀌면 이들에게만 ROOM_EVENT 를 보낸다.
+    private final Set<ClientHandler> roomSubscribers = ConcurrentHashMap.newKeySet();
+
+    // 점수판/방 목록이 바뀔 때마다 오르는 버전. 내용을 바꾼 뒤에 올린다.
+    // 클라이언트가 가진 버전과 같으면 NOT_MODIFIED 로 답하고, 다르면 버전별로 한 번 만든 응답을 돌려쓴다.
+    private final AtomicInteger leaderboardVersion = new AtomicInteger(1);
+    private final AtomicInteger roomsVersion = new AtomicInteger(1);
+    private volatile VersionedReply leaderboardReply;
+    private volatile VersionedReply roomListReply;
+
+    // 같은 내용을 기존 형식(종류:내용)과 버전 형식(종류:버전:내용)으로 들고 있는다.
+    private static final class VersionedReply {
+        final int version;
+        final OutboundMessage plain;
+        final OutboundMessage versioned;
+
+        VersionedReply(int version, String type, String body) {
+            this.version = version;
+            this.plain = new OutboundMessage(body.isEmpty() ? type : type + ":" + body);
+            this.versioned = new OutboundMessage(type + ":" + version + ":" + body);
+        }
+
+        OutboundMessage forClient(ClientHandler client) {
+            return client.getProtocolVersion() >= 3 ? versioned : plain;
+        }
+    }
     private AtomicInteger roomIdCounter = new AtomicInteger(0);
 
     private ConcurrentHashMap<String, Double> playerScores = new ConcurrentHashMap<>();
@@ -31,25 +77,116 @@ public class BlokusServer {
         try {
             System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8"));
             System.setErr(new PrintStream(new FileOutputStream(FileDescriptor.err), true, "UTF-8"));
+            // 로그 스레드가 여러 줄을 모아 한 번에 flush 하므로 autoFlush 를 끈 스트림을 따로 준다.
+            Log.setOutput(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024), false, "UTF-8"));
         } catch (Exception e) {
             e.printStackTrace();
         }
+        Log.registerMBean();
         new BlokusServer().startServer();
     }
 
     public void startServer() {
         loadScores();
+        startMetricsReporter();
+        if (IO_MODE == IoMode.THREAD) {
+            startThreadServer(Thread::new, "연결당 스레드");
+        } else if (IO_MODE == IoMode.VIRTUAL) {
+            ThreadFactory virtualThreads = virtualThreadFactory();
+            if (virtualThreads != null) {
+                startThreadServer(virtualThreads, "연결당 가상 스레드");
+            } else {
+                Log.info("가상 스레드를 지원하지 않는 JDK 입니다. 플랫폼 스레드로 실행합니다.");
+                startThreadServer(Thread::new, "연결당 스레드");
+            }
+        } else {
+            startNioServer();
+        }
+    }
+
+    HashedWheelTimer timer() {
+        return timer;
+    }
+
+    private static RoomLoop[] startRoomLoops(int count) {
+        RoomLoop[] loops = new RoomLoop[Math.max(1, count)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new RoomLoop("blokus-room-" + i);
+            loops[i].start();
+        }
+        return loops;
+    }
+
+    // 새 방을 둘 루프. 방을 지울 때 RoomLoop.release() 로 돌려준다.
+    RoomLoop assignRoomLoop() {
+        RoomLoop best = roomLoops[0];
+        for (int i = 1; i < roomLoops.length; i++) {
+            if (roomLoops[i].lighterThan(best)) best = roomLoops[i];
+        }
+        best.assign();
+        return best;
+    }
+
+    private void startMetricsReporter() {
+        if (METRICS_INTERVAL_SECONDS <= 0) return;
+        long period = METRICS_INTERVAL_SECONDS * 1000L;
+        new Timer("blokus-metrics", true).scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                Log.info("[metrics] " + ServerMetrics.report());
+                StringBuilder loops = new StringBuilder();
+                for (RoomLoop loop : roomLoops) {
+                    if (loops.length() > 0) loops.append(" / ");
+                    loops.append(loop.report());
+                }
+                Log.info("[metrics] 방 루프: " + loops);
+                StringBuilder latency = new StringBuilder();
+                for (GameRoom room : gameRooms.values()) {
+                    String report = room.latencyReport();
+                    if (report == null) continue;
+                    if (latency.length() > 0) latency.append(" / ");
+                    latency.append(report);
+                }
+                if (latency.length() > 0) Log.info("[metrics] 방 지연: " + latency);
+            }
+        }, period, period);
+    }
+
+    private void startNioServer() {
+        try {
+            new NioServer(this, PORT, IO_LOOPS).run();
+        } catch (IOException e) {
+            Log.error("서버 소켓 오류: " + e.getMessage());
+        }
+    }
+
+    private void startThreadServer(ThreadFactory threads, String description) {
         try (ServerSocket serverSocket = new ServerSocket(PORT)) {
-            System.out.println("블로커스 서버 시작. 포트: " + PORT);
+            Log.info("블로커스 서버 시작 (" + description + "). 포트: " + PORT);
 
             while (true) {
                 Socket clientSocket = serverSocket.accept();
-                System.out.println("새 클라이언트 접속: " + clientSocket.getInetAddress());
-                ClientHandler clientHandler = new ClientHandler(clientSocket, this);
-                clientHandler.start();
+                Log.info("새 클라이언트 접속: " + clientSocket.getInetAddress());
+                clientSocket.setKeepAlive(true);
+                ClientHandler clientHandler = new ClientHandler(this);
+                SocketConnection connection = new SocketConnection(clientSocket, clientHandler, threads);
+                connection.startHeartbeat(timer);
+                threads.newThread(connection).start();
             }
         } catch (IOException e) {
-            System.err.println("서버 소켓 오류: " + e.getMessage());
+            Log.error("서버 소켓 오류: " + e.getMessage());
+        }
+    }
+
+    // JDK 21 이상에서만 Thread.ofVirtual() 이 있으므로 리플렉션으로 찾고, 없으면 null 을 돌려준다.
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "blokus-conn-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
         }
     }
 
@@ -60,11 +197,11 @@ public class BlokusServer {
             for (String username : props.stringPropertyNames()) {
                 playerScores.put(username, Double.parseDouble(props.getProperty(username)));
             }
-            System.out.println("스코어 로드 완료: " + SCORES_FILE);
+            Log.info("스코어 로드 완료: " + SCORES_FILE);
         } catch (FileNotFoundException e) {
-            System.out.println("스코어 파일 없음. 새로 생성합니다.");
+            Log.info("스코어 파일 없음. 새로 생성합니다.");
         } catch (IOException | NumberFormatException e) {
-            System.err.println("스코어 로드 중 오류 발생: " + e.getMessage());
+            Log.error("스코어 로드 중 오류 발생: " + e.getMessage());
         }
     }
 
@@ -75,9 +212,9 @@ public class BlokusServer {
         }
         try (OutputStream output = new FileOutputStream(SCORES_FILE)) {
             props.store(output, "Blokus Player Scores");
-            System.out.println("스코어 저장 완료: " + SCORES_FILE);
+            Log.info("스코어 저장 완료: " + SCORES_FILE);
         } catch (IOException e) {
-            System.err.println("스코어 저장 중 오류 발생: " + e.getMessage());
+            Log.error("스코어 저장 중 오류 발생: " + e.getMessage());
         }
     }
 
@@ -88,23 +225,41 @@ public class BlokusServer {
             double currentScore = playerScores.getOrDefault(username, 0.0);
             playerScores.put(username, currentScore + change);
         }
+        leaderboardVersion.incrementAndGet();
         saveScores();
     }
 
     public void sendLeaderboard(ClientHandler client) {
-        if (playerScores.isEmpty()) {
-            client.sendMessage(Protocol.S2C_LEADERBOARD_DATA);
+        VersionedReply reply = leaderboardReply();
+        client.setLeaderboardVersionSeen(reply.version);
+        client.sendReply(reply.forClient(client));
+    }
+
+    // GET_LEADERBOARD:버전. 클라이언트가 이미 최신이면 정렬도 전송도 하지 않는다.
+    public void sendLeaderboard(ClientHandler client, int knownVersion) {
+        if (knownVersion == leaderboardVersion.get()) {
+            client.sendMessage(Protocol.S2C_NOT_MODIFIED + ":" + Protocol.S2C_LEADERBOARD_DATA + ":" + knownVersion);
             return;
         }
+        sendLeaderboard(client);
+    }
+
+    private VersionedReply leaderboardReply() {
+        int version = leaderboardVersion.get();
+        VersionedReply reply = leaderboardReply;
+        if (reply != null && reply.version == version) return reply;
+
         List<Map.Entry<String, Double>> sortedScores = new ArrayList<>(playerScores.entrySet());
         sortedScores.sort(Map.Entry.<String, Double>comparingByValue().reversed());
 
-        StringBuilder leaderboardData = new StringBuilder(Protocol.S2C_LEADERBOARD_DATA + ":");
+        StringBuilder leaderboardData = new StringBuilder();
         for (Map.Entry<String, Double> entry : sortedScores) {
-            leaderboardData.append(entry.getKey()).append("/").append(entry.getValue()).append(";");
+            if (leaderboardData.length() > 0) leaderboardData.append(";");
+            leaderboardData.append(entry.getKey()).append("/").append(entry.getValue());
         }
-        leaderboardData.deleteCharAt(leaderboardData.length() - 1);
-        client.sendMessage(leaderboardData.toString());
+        reply = new VersionedReply(version, Protocol.S2C_LEADERBOARD_DATA, leaderboardData.toString());
+        leaderboardReply = reply;
+        return reply;
     }
 
 
@@ -131,47 +286,103 @@ public class BlokusServer {
 
     public void addClientToLobby(ClientHandler client) {
         lobbyClients.put(client.getUsername(), client);
-        sendLeaderboard(client);
+        // 버전을 아는 클라이언트가 이미 최신 점수판을 받았다면 다시 보내지 않는다.
+        if (client.getProtocolVersion() < 3 || client.getLeaderboardVersionSeen() != leaderboardVersion.get()) {
+            sendLeaderboard(client);
+        }
+        if (client.isSubscribedToRooms()) {
+            // 로비를 떠나 있던 동안의 이벤트는 받지 못했으므로 목록 전체로 다시 맞춘다.
+            roomSubscribers.add(client);
+            sendRoomList(client);
+        }
     }
 
     public void removeClientFromLobby(ClientHandler client) {
+        roomSubscribers.remove(client);
         if (client.getUsername() != null) {
             lobbyClients.remove(client.getUsername());
         }
     }
 
+    // 구독 직후 현재 목록을 한 번 보내고, 이후에는 바뀐 방만 ROOM_EVENT 로 보낸다.
+    public void subscribeRooms(ClientHandler client) {
+        if (client.getUsername() == null || lobbyClients.get(client.getUsername()) != client) return;
+        roomSubscribers.add(client);
+        sendRoomList(client);
+    }
+
+    public void unsubscribeRooms(ClientHandler client) {
+        roomSubscribers.remove(client);
+    }
+
+    // 방 인원/상태가 바뀐 뒤에 부른다. 목록에 보일 방이면 UPDATE, 시작했거나 없어졌으면 REMOVE
+    public void publishRoomChanged(GameRoom room) {
+        if (gameRooms.get(room.getRoomId()) == room && !room.isGameStarted()) {
+            publishRoomEvent("UPDATE", roomEntry(room));
+        } else {
+            publishRoomEvent("REMOVE", String.valueOf(room.getRoomId()));
+        }
+    }
+
+    // 구독자 수만큼만 비용이 든다. 메시지는 한 번 만들어 모두가 공유한다.
+    private void publishRoomEvent(String kind, String payload) {
+        roomsVersion.incrementAndGet();
+        if (roomSubscribers.isEmpty()) return;
+        OutboundMessage event = new OutboundMessage(Protocol.S2C_ROOM_EVENT + ":" + kind + ":" + payload);
+        for (ClientHandler subscriber : roomSubscribers) {
+            subscriber.sendMessage(event);
+        }
+    }
+
+    // [id,이름,인원/4,모드]
+    private static String roomEntry(GameRoom room) {
+        return "[" + room.getRoomId() + "," + room.getRoomName() + "," + room.getPlayerCount() + "/4,"
+                + room.getGameMode().name() + "]";
+    }
+
     public GameRoom createRoom(String roomName, ClientHandler host, GameRoom.GameMode gameMode) {
         int roomId = roomIdCounter.incrementAndGet();
         GameRoom newRoom = new GameRoom(roomId, roomName, host, this, gameMode);
         gameRooms.put(roomId, newRoom);
 
         removeClientFromLobby(host);
-        newRoom.addPlayer(host);
+        // 방장의 다음 명령부터는 이 방의 메일박스에서 처리되므로 입장보다 앞설 수 없다.
+        newRoom.execute(() -> {
+            newRoom.addPlayer(host);
+            publishRoomEvent("ADD", roomEntry(newRoom));
+        });
 
-        System.out.println(gameMode.name() + " 방 생성됨: " + roomName + " (ID: " + roomId + ") by " + host.getUsername());
+        Log.info(gameMode.name() + " 방 생성됨: " + roomName + " (ID: " + roomId + ") by " + host.getUsername());
         return newRoom;
     }
 
+    // 방 메일박스 안에서 부른다 (ClientHandler 가 JOIN_ROOM 을 그 방으로 넘겨 처리한다).
     public GameRoom joinRoom(int roomId, ClientHandler player) {
         GameRoom room = gameRooms.get(roomId);
         if (room != null && !room.isGameStarted() && room.getPlayerCount() < 4) {
             removeClientFromLobby(player);
             room.addPlayer(player);
-            System.out.println(player.getUsername() + "가 방 " + roomId + "에 참여.");
+            publishRoomChanged(room);
+            Log.info(player.getUsername() + "가 방 " + roomId + "에 참여.");
             return room;
         }
         return null;
     }
 
     public void leaveRoom(GameRoom room, ClientHandler player) {
+        if (!room.inMailbox()) {
+            room.execute(() -> leaveRoom(room, player));
+            return;
+        }
         boolean remove = room.removePlayer(player);
 
         if (remove) {
-            gameRooms.remove(room.getRoomId());
-            System.out.println("방 " + room.getRoomId() + " 제거됨 (0명).");
+            if (gameRooms.remove(room.getRoomId(), room)) room.dispose();
+            Log.info("방 " + room.getRoomId() + " 제거됨 (0명).");
         } else {
-            System.out.println(player.getUsername() + "가 방 " + room.getRoomId() + "에서 나감.");
+            Log.info(player.getUsername() + "가 방 " + room.getRoomId() + "에서 나감.");
         }
+        publishRoomChanged(room);
 
         addClientToLobby(player);
     }
@@ -179,7 +390,9 @@ public class BlokusServer {
     public void removeRoom(int roomId) {
         GameRoom room = gameRooms.remove(roomId);
         if (room != null) {
-            System.out.println("게임 종료. 방 " + roomId + " 제거됨.");
+            room.dispose();
+            publishRoomChanged(room);
+            Log.info("게임 종료. 방 " + roomId + " 제거됨.");
             for (ClientHandler player : room.getPlayers()) {
                 player.setCurrentRoom(null);
                 addClientToLobby(player);
@@ -188,25 +401,37 @@ public class BlokusServer {
     }
 
     public void sendRoomList(ClientHandler client) {
-        StringBuilder roomListStr = new StringBuilder(Protocol.S2C_ROOM_LIST);
-        boolean hasData = false;
+        client.sendReply(roomListReply().forClient(client));
+    }
+
+    // GET_ROOM_LIST:버전
+    public void sendRoomList(ClientHandler client, int knownVersion) {
+        if (knownVersion == roomsVersion.get()) {
+            client.sendMessage(Protocol.S2C_NOT_MODIFIED + ":" + Protocol.S2C_ROOM_LIST + ":" + knownVersion);
+            return;
+        }
+        sendRoomList(client);
+    }
+
+    private VersionedReply roomListReply() {
+        int version = roomsVersion.get();
+        VersionedReply reply = roomListReply;
+        if (reply != null && reply.version == version) return reply;
+
+        StringBuilder roomListStr = new StringBuilder();
         for (GameRoom room : gameRooms.values()) {
             if (!room.isGameStarted()) {
-                if (!hasData) {
-                    roomListStr.append(":");
-                    hasData = true;
-                }
-                roomListStr.append(String.format("[%d,%s,%d/4,%s];",
-                        room.getRoomId(), room.getRoomName(), room.getPlayerCount(), room.getGameMode().name()));
+                if (roomListStr.length() > 0) roomListStr.append(';');
+                roomListStr.append(roomEntry(room));
             }
         }
-        if (hasData) {
-            roomListStr.deleteCharAt(roomListStr.length() - 1);
-        }
-        client.sendMessage(roomListStr.toString());
+        reply = new VersionedReply(version, Protocol.S2C_ROOM_LIST, roomListStr.toString());
+        roomListReply = reply;
+        return reply;
     }
 
-    public synchronized void sendWhisper(ClientHandler from, String targetUsername, String message) {
+    public void sendWhisper(ClientHandler from, String targetUsername, String message) {
+        // 대상 탐색은 동시 컬렉션만 읽으므로 서버 모니터 없이 하고, 전송도 락 밖에서 한다.
         ClientHandler target = null;
 
         for (ClientHandler client : lobbyClients.values()) {
@@ -218,13 +443,10 @@ public class BlokusServer {
 
         if (target == null) {
             for (GameRoom room : gameRooms.values()) {
-                List<ClientHandler> roomPlayers = room.getPlayers();
-                synchronized (roomPlayers) {
-                    for (ClientHandler client : roomPlayers) {
-                        if (client.getUsername().equalsIgnoreCase(targetUsername)) {
-                            target = client;
-                            break;
-                        }
+                for (ClientHandler client : room.getPlayers()) {
+                    if (client.getUsername().equalsIgnoreCase(targetUsername)) {
+                        target = client;
+                        break;
                     }
                 }
                 if (target != null) break;
@@ -246,6 +468,7 @@ public class BlokusServer {
         return gameRooms.get(roomId);
     }
 
+    // ClientHandler 가 남은 명령을 모두 처리한 뒤, 방에 있으면 그 방의 메일박스에서 부른다.
     public void onClientDisconnect(ClientHandler client) {
         if (client.getCurrentRoom() != null) {
             GameRoom room = client.getCurrentRoom();
@@ -253,9 +476,11 @@ public class BlokusServer {
 
             if (room.getGameMode() != GameRoom.GameMode.PEERLESS) {
                 leaveRoom(room, client);
+            } else {
+                publishRoomChanged(room);
             }
         }
         removeClientFromLobby(client);
-        System.out.println(client.getUsername() + " 접속 종료.");
+        Log.info(client.getUsername() + " 접속 종료.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package game;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// LOGIN 때 클라이언트가 알리는 기능. 서버는 자신이 지원하고 연결 형식이 나를 수 있는 것만 켠다.
+enum Capability {
+    // BOARD_DELTA/BOARD_SNAPSHOT/TURN_UPDATE, HAND_INIT/HAND_REMOVE
+    DELTA,
+    // BOARD_SNAPSHOT 을 FrameCodec.OP_BOARD 이진 프레임으로 받는다. FrameCodec 연결에서만 켜진다.
+    BINARY,
+    // 큰 프레임을 FrameCodec.OP_DEFLATE 로 압축해 받는다. FrameCodec 연결에서만 켜진다.
+    DEFLATE,
+    // 남은 시간 대신 마감 시각을 받아 클라이언트가 직접 센다.
+    CLOCK,
+    // PING:토큰 에 PONG:토큰 으로 답해 왕복 시간을 재고, LATENCY 로 결과를 받는다. 클래식 턴 시간에 편도 지연만큼(상한까지) 보정을 받는다.
+    RTT;
+
+    private static final Set<Capability> SERVER = EnumSet.of(DELTA, BINARY, DEFLATE, CLOCK, RTT);
+
+    // "DELTA,BINARY" 형식. 모르는 이름은 건너뛴다.
+    static EnumSet<Capability> negotiate(String requested, boolean frameCodec) {
+        EnumSet<Capability> result = EnumSet.noneOf(Capability.class);
+        if (requested == null) return result;
+        for (String name : requested.split(",")) {
+            for (Capability c : values()) {
+                if (c.name().equals(name.trim()) && SERVER.contains(c)) result.add(c);
+            }
+        }
+        if (!frameCodec) {
+            result.remove(BINARY);
+            result.remove(DEFLATE);
+        }
+        return result;
+    }
+
+    static String format(Set<Capability> caps) {
+        StringBuilder sb = new StringBuilder();
+        for (Capability c : caps) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(c.name());
+        }
+        return sb.toString();
+    }
+}
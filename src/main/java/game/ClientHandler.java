@@ -1,89 +1,294 @@
 package game;
 
-import java.io.BufferedReader;
-import java.io.EOFException;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.net.Socket;
-import java.net.SocketException;
-import java.nio.charset.StandardCharsets;
-
-public class ClientHandler extends Thread {
-    private Socket socket;
-    private BlokusServer server;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ClientHandler {
+    private final BlokusServer server;
+    private Connection connection;
+    // 받은 명령은 받은 순서대로, 한 번에 한 스레드(draining 을 쥔 스레드)에서만 처리한다.
+    // 방에 있는 동안에는 그 방의 메일박스로 넘어가 거기서 이어서 처리하므로 방 상태를 락 없이 만질 수 있고,
+    // 아래의 요청 ID/BATCH 응답도 처리하는 스레드 기준 그대로 동작한다. 접속 종료도 남은 명령 뒤에 같은 방식으로 처리된다.
+    private static final int INBOX_BUDGET = 16;
+    private final Queue<Inbound> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private volatile boolean disconnected = false;
+    private volatile boolean disconnectHandled = false;
+    // 처리 중인 명령을 받은 시각. 턴 시간은 편지함/메일박스에서 기다린 시간을 빼고 이 시각으로 깎는다.
+    private long receivedNanos;
+    // 한 번에 한 스레드에서만 쓰므로 재사용한다.
+    private final CommandCursor cursor = new CommandCursor();
+    // 처리 중인 명령의 요청 ID 와 그 명령을 처리하는 스레드. 그 스레드에서 이 클라이언트에게 보내는 응답에만 ID 를 붙인다.
+    // 다른 스레드(방 타이머, 다른 플레이어의 명령)에서 오는 메시지는 응답이 아니므로 붙이지 않는다.
+    private String replyTo;
+    private Thread replyThread;
+    // BATCH 를 처리하는 동안 그 스레드에서 이 클라이언트에게 보내는 메시지를 모아 두었다가 BATCH_REPLY 하나로 보낸다.
+    private static final int MAX_BATCH_COMMANDS = 32;
+    private List<String> batchReplies;
+    private Thread batchThread;
+    private String batchReplyTo;
+    // BATCH 도중 명령을 처리할 방이 바뀌면(CREATE_ROOM/JOIN_ROOM 뒤) 남은 명령을 그 방 메일박스에서 이어서 처리한다.
+    // draining 을 쥔 스레드만 만진다.
+    private PendingBatch pendingBatch;
+
+    private static final class PendingBatch {
+        final List<String> commands;
+        final String replyTo;
+        final long receivedNanos;
+        List<String> replies = new ArrayList<>();
+        int next;
+        GameRoom room;
+
+        PendingBatch(List<String> commands, String replyTo, long receivedNanos) {
+            this.commands = commands;
+            this.replyTo = replyTo;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+
+    private static final class Inbound {
+        final String text;
+        final long receivedNanos;
+
+        Inbound(String text, long receivedNanos) {
+            this.text = text;
+            this.receivedNanos = receivedNanos;
+        }
+    }
 
     private String username;
-    private GameRoom currentRoom;
+    private volatile GameRoom currentRoom;
     private boolean authenticated = false;
-
-    public ClientHandler(Socket socket, BlokusServer server) {
-        this.socket = socket;
+    // LOGIN 에서 정해진다. 버전을 알리지 않은 기존 클라이언트는 1, 기능 없음
+    private volatile int protocolVersion = 1;
+    private volatile Set<Capability> capabilities = EnumSet.noneOf(Capability.class);
+    // SUBSCRIBE:rooms 이후 로비에 있는 동안 방 목록 변경을 받는다.
+    private volatile boolean subscribedToRooms = false;
+    // 이 클라이언트에게 마지막으로 보낸 점수판 버전
+    private volatile int leaderboardVersionSeen = 0;
+
+    // RTT 기능. 이 주기(ms)로 PING:토큰 을 보내 왕복 시간을 재고 EWMA(1/8)로 평활한다. 0 이면 아직 잰 적이 없다.
+    private static final int RTT_PROBE_INTERVAL_MS = Integer.getInteger("blokus.rtt.interval", 5_000);
+    private static final String PONG_PREFIX = Protocol.C2S_PONG + ":";
+    // 답을 기다리는 PING 의 토큰(보낸 시각). 타이머 스레드가 쓰고 수신 스레드가 읽는다.
+    private volatile long pingSentNanos = 0;
+    private volatile long rttNanos = 0;
+    // 최근 RTT_WINDOW 개 표본 중 가장 작은 값. 턴 시간 보정은 한 번 튄 표본에 흔들리지 않도록 평활값이 아니라 이것을 쓴다.
+    // 수신 스레드만 recentRtt 를 쓴다.
+    private static final int RTT_WINDOW = 8;
+    private final long[] recentRtt = new long[RTT_WINDOW];
+    private int recentRttCount = 0;
+    private volatile long minRttNanos = 0;
+
+    public ClientHandler(BlokusServer server) {
         this.server = server;
     }
 
-    @Override
-    public void run() {
-        try {
-            out = new ObjectOutputStream(socket.getOutputStream());
-            out.flush();
-            in = new ObjectInputStream(socket.getInputStream());
-
-            String message;
-            while ((message = (String) in.readObject()) != null) {
-                System.out.println((username != null ? username : "???") + " (C2S): " + message);
-                handleMessage(message);
+    void attach(Connection connection) {
+        this.connection = connection;
+    }
+
+    void onMessage(String message) {
+        // 방 메일박스에서 기다린 시간이 왕복 시간에 섞이지 않도록 토큰이 달린 PONG 은 받은 스레드에서 바로 처리한다.
+        if (message.startsWith(PONG_PREFIX)) {
+            onPong(message.substring(PONG_PREFIX.length()));
+            return;
+        }
+        inbox.add(new Inbound(message, System.nanoTime()));
+        drainInbox();
+    }
+
+    void onDisconnect() {
+        disconnected = true;
+        drainInbox();
+    }
+
+    private boolean hasWork() {
+        return !inbox.isEmpty() || (disconnected && !disconnectHandled);
+    }
+
+    private void drainInbox() {
+        while (hasWork() && draining.compareAndSet(false, true)) {
+            // 다른 메일박스로 넘겼으면 draining 을 쥔 채로 돌아온다. 거기서 이어서 처리한 뒤 내려놓는다.
+            if (!processInbox()) return;
+            draining.set(false);
+        }
+    }
+
+    private void continueInbox() {
+        if (!processInbox()) return;
+        draining.set(false);
+        drainInbox();
+    }
+
+    // draining 을 쥔 스레드에서만 돈다. 처리할 방의 메일박스가 지금 스레드가 아니면 그리로 넘기고 false
+    private boolean processInbox() {
+        int processed = 0;
+        while (true) {
+            Inbound message = inbox.peek();
+            if (message == null && !(disconnected && !disconnectHandled)) return true;
+
+            GameRoom room = message != null ? roomFor(message.text) : currentRoom;
+            if (room != null && (!room.inMailbox() || processed == INBOX_BUDGET)) {
+                // 한 클라이언트가 방 메일박스를 오래 붙잡지 않도록 BUDGET 마다 뒤로 다시 줄을 선다.
+                room.execute(this::continueInbox);
+                return false;
             }
+            if (message == null) {
+                disconnectHandled = true;
+                server.onClientDisconnect(this);
+                return true;
+            }
+            inbox.poll();
+            receivedNanos = message.receivedNanos;
+            process(message.text);
+            processed++;
+            if (pendingBatch != null) {
+                handOffBatch();
+                return false;
+            }
+        }
+    }
 
-        } catch (SocketException | EOFException e) {
-            System.out.println((username != null ? username : "Socket") + " 연결 종료.");
-        } catch (IOException e) {
-            System.out.println((username != null ? username : "Socket") + " IO 오류: " + e.getMessage());
-        } catch (ClassNotFoundException e) {
-            System.err.println("알 수 없는 객체 수신: " + e.getMessage());
+    private void handOffBatch() {
+        PendingBatch batch = pendingBatch;
+        pendingBatch = null;
+        batch.room.execute(() -> resumeBatch(batch));
+    }
+
+    // 옮겨 간 방 메일박스에서 남은 BATCH 명령을 처리하고, 끝나면 받은 편지함 처리를 이어 간다.
+    private void resumeBatch(PendingBatch batch) {
+        runBatch(batch);
+        if (pendingBatch != null) {
+            handOffBatch();
+            return;
+        }
+        continueInbox();
+    }
+
+    // 이 명령을 처리할 방. 방에 있으면 그 방, 로비에서 JOIN_ROOM(또는 그것을 담은 BATCH)이면 들어갈 방
+    private GameRoom roomFor(String message) {
+        GameRoom room = currentRoom;
+        if (room != null) return room;
+        if (message.startsWith(Protocol.C2S_JOIN_ROOM)) return joinTarget(cursor.reset(message));
+        if (message.startsWith(Protocol.C2S_BATCH)) {
+            CommandCursor in = cursor.reset(message);
+            if (in.opcode() != Protocol.C2S_BATCH) return null;
+            while (in.hasMore() && in.ok()) {
+                String command = in.nextSized();
+                if (command != null && command.startsWith(Protocol.C2S_JOIN_ROOM)) {
+                    return joinTarget(new CommandCursor().reset(command));
+                }
+            }
+        }
+        return null;
+    }
+
+    private GameRoom joinTarget(CommandCursor in) {
+        if (in.opcode() != Protocol.C2S_JOIN_ROOM) return null;
+        int roomId = in.nextInt();
+        return in.ok() ? server.getRoom(roomId) : null;
+    }
+
+    private void process(String message) {
+        if (Log.tracing(username, currentRoom)) {
+            Log.trace((username != null ? username : "???") + " (C2S): " + message);
+        }
+        WriteBatch.begin();
+        try {
+            handleMessage(message);
         } finally {
-            cleanup();
+            WriteBatch.end();
         }
     }
 
     private void handleMessage(String message) {
-        String[] parts = message.split(":", 3);
-        String command = parts[0];
-        String data = (parts.length > 1) ? parts[1] : "";
+        CommandCursor in = cursor.reset(message);
+        String command = in.opcode();
+        replyTo = in.requestId();
+        replyThread = replyTo != null ? Thread.currentThread() : null;
 
         try {
-            if (!authenticated && !command.equals(Protocol.C2S_LOGIN)) {
+            if (command == Protocol.C2S_BATCH) {
+                handleBatch(in, replyTo);
+                return;
+            }
+            // PONG 은 수신 시각만 갱신하면 되므로(Connection.onBytes) 로그인 전에도 조용히 받는다.
+            if (command == Protocol.C2S_PONG) return;
+            if (!authenticated && command != Protocol.C2S_LOGIN) {
                 sendMessage(Protocol.S2C_LOGIN_FAIL + ":로그인이 필요합니다.");
                 return;
             }
+            if (command == null) {
+                Log.warn("알 수 없는 명령어: " + message);
+                return;
+            }
 
             switch (command) {
-                case Protocol.C2S_LOGIN:
-                    handleLegacyLogin(data);
+                case Protocol.C2S_LOGIN: {
+                    String name = in.nextField();
+                    int version = in.hasMore() ? in.nextInt() : 1;
+                    handleLogin(name, in.ok() ? version : 1, in.hasMore() ? in.rest() : null);
                     break;
+                }
 
                 case Protocol.C2S_GET_LEADERBOARD:
+                    if (protocolVersion >= 3 && in.hasMore()) {
+                        int known = in.nextInt();
+                        if (in.ok()) {
+                            server.sendLeaderboard(this, known);
+                            break;
+                        }
+                    }
                     server.sendLeaderboard(this);
                     break;
 
                 case Protocol.C2S_GET_ROOM_LIST:
+                    if (protocolVersion >= 3 && in.hasMore()) {
+                        int known = in.nextInt();
+                        if (in.ok()) {
+                            server.sendRoomList(this, known);
+                            break;
+                        }
+                    }
                     server.sendRoomList(this);
                     break;
-                case Protocol.C2S_CREATE_ROOM:
-                    if (parts.length == 3) {
-                        handleCreateRoom(parts[1], parts[2]);
+
+                case Protocol.C2S_SUBSCRIBE:
+                case Protocol.C2S_UNSUBSCRIBE: {
+                    String topic = in.nextField();
+                    if (!topic.equals(Protocol.TOPIC_ROOMS)) {
+                        sendMessage(Protocol.S2C_SYSTEM_MSG + ":알 수 없는 토픽입니다: " + topic);
+                        break;
+                    }
+                    subscribedToRooms = command == Protocol.C2S_SUBSCRIBE;
+                    if (subscribedToRooms) {
+                        server.subscribeRooms(this);
                     } else {
-                        handleCreateRoom(data, "CLASSIC");
+                        server.unsubscribeRooms(this);
                     }
                     break;
-                case Protocol.C2S_JOIN_ROOM:
-                    handleJoinRoom(data);
+                }
+                case Protocol.C2S_CREATE_ROOM: {
+                    String roomName = in.nextField();
+                    handleCreateRoom(roomName, in.hasMore() ? in.rest() : "CLASSIC");
+                    break;
+                }
+                case Protocol.C2S_JOIN_ROOM: {
+                    int roomId = in.nextInt();
+                    if (!in.ok()) {
+                        sendMessage(Protocol.S2C_JOIN_FAIL + ":잘못된 방 ID입니다.");
+                        break;
+                    }
+                    handleJoinRoom(roomId);
                     break;
+                }
                 case Protocol.C2S_LEAVE_ROOM:
                     handleLeaveRoom();
                     break;
@@ -91,18 +296,24 @@ public class ClientHandler extends Thread {
                     handleStartGame();
                     break;
                 case Protocol.C2S_KICK_PLAYER:
-                    handleKickPlayer(data);
+                    handleKickPlayer(in.nextField());
                     break;
                 case Protocol.C2S_PLACE_BLOCK:
-                    handlePlaceBlock(message.substring(Protocol.C2S_PLACE_BLOCK.length() + 1));
+                    handlePlaceBlock(PlaceCommand.parse(in, receivedNanos));
                     break;
                 // PASS_TURN removed
 
-                case Protocol.C2S_RESIGN_COLOR:
+                case Protocol.C2S_RESIGN_COLOR: {
+                    int color = in.nextInt();
+                    if (!in.ok()) {
+                        Log.warn("Invalid C2S_RESIGN_COLOR data: " + message);
+                        break;
+                    }
                     if (currentRoom != null) {
-                        currentRoom.handleResignColor(this, data);
+                        currentRoom.handleResignColor(this, color);
                     }
                     break;
+                }
 
                 case Protocol.C2S_RESIGN_PEERLESS:
                     if (currentRoom != null) {
@@ -111,26 +322,101 @@ public class ClientHandler extends Thread {
                     break;
 
                 case Protocol.C2S_CHAT:
-                    handleChat(data);
+                    handleChat(in.nextField());
                     break;
 
-                case Protocol.C2S_WHISPER:
-                    String[] whisperParts = message.substring(Protocol.C2S_WHISPER.length() + 1).split(":", 2);
-                    if (whisperParts.length == 2) {
-                        server.sendWhisper(this, whisperParts[0], whisperParts[1]);
+                case Protocol.C2S_RESYNC:
+                    if (currentRoom != null) {
+                        currentRoom.sendBoardSnapshot(this);
                     }
                     break;
 
-                default:
-                    System.err.println("알 수 없는 명령어: " + message);
+                case Protocol.C2S_WHISPER: {
+                    String target = in.nextField();
+                    if (in.hasMore()) {
+                        server.sendWhisper(this, target, in.rest());
+                    }
+                    break;
+                }
             }
         } catch (Exception e) {
-            System.err.println("메시지 처리 중 예외 발생 (" + message + "): " + e.getMessage());
-            e.printStackTrace();
+            Log.error("메시지 처리 중 예외 발생 (" + message + "): " + e.getMessage(), e);
+        } finally {
+            replyTo = null;
+            replyThread = null;
+        }
+    }
+
+    // BATCH:길이:명령:길이:명령... 안의 명령을 차례로 처리한다. 로그인 확인은 명령마다 따로 한다.
+    private void handleBatch(CommandCursor in, String batchId) {
+        if (batchReplies != null) {
+            Log.warn("BATCH 안의 BATCH 는 처리하지 않습니다.");
+            return;
+        }
+        List<String> commands = new ArrayList<>();
+        while (in.hasMore()) {
+            if (commands.size() == MAX_BATCH_COMMANDS) {
+                Log.warn("BATCH 명령이 너무 많습니다. (최대 " + MAX_BATCH_COMMANDS + "개)");
+                return;
+            }
+            String command = in.nextSized();
+            if (!in.ok()) {
+                Log.warn("잘못된 BATCH 형식입니다.");
+                return;
+            }
+            commands.add(command);
+        }
+
+        // handleMessage 가 cursor 를 다시 쓰므로 명령을 모두 꺼내 둔 뒤에 처리한다.
+        runBatch(new PendingBatch(commands, batchId, receivedNanos));
+    }
+
+    // 다음 명령을 처리할 방의 메일박스가 지금 스레드가 아니면 pendingBatch 에 남겨 두고 돌아온다.
+    // 모은 응답과 요청 ID 는 그대로 넘어가므로 BATCH_REPLY 는 모든 명령이 끝난 뒤 한 번만 나간다.
+    private void runBatch(PendingBatch batch) {
+        batchReplies = batch.replies;
+        receivedNanos = batch.receivedNanos;
+        batchThread = Thread.currentThread();
+        batchReplyTo = batch.replyTo;
+        try {
+            while (batch.next < batch.commands.size()) {
+                String command = batch.commands.get(batch.next);
+                GameRoom room = roomFor(command);
+                if (room != null && !room.inMailbox()) {
+                    batch.room = room;
+                    pendingBatch = batch;
+                    return;
+                }
+                batch.next++;
+                handleMessage(command);
+            }
+        } finally {
+            if (pendingBatch == batch) {
+                // 이진 프레임 때문에 중간에 내보냈으면 새 목록이 들어 있다.
+                batch.replies = batchReplies;
+                batchReplies = null;
+            } else {
+                flushBatchReplies();
+            }
+            batchThread = null;
+            batchReplyTo = null;
+        }
+    }
+
+    // 지금까지 모인 응답을 BATCH_REPLY[@id]:길이:메시지:길이:메시지... 로 보낸다.
+    private void flushBatchReplies() {
+        List<String> replies = batchReplies;
+        batchReplies = null;
+        StringBuilder reply = new StringBuilder(Protocol.S2C_BATCH_REPLY);
+        if (batchReplyTo != null) reply.append(Protocol.REQUEST_ID_SEPARATOR).append(batchReplyTo);
+        for (String r : replies) {
+            reply.append(':').append(r.length()).append(':').append(r);
         }
+        sendMessage(new OutboundMessage(reply.toString()));
     }
 
-    private void handleLegacyLogin(String usernameRaw) {
+    // LOGIN:이름[:버전[:기능,기능,...]]
+    private void handleLogin(String usernameRaw, int version, String requestedCaps) {
         if (usernameRaw == null || usernameRaw.trim().isEmpty()) {
             sendMessage(Protocol.S2C_LOGIN_FAIL + ":유효하지 않은 이름입니다.");
             cleanup();
@@ -144,7 +430,17 @@ public class ClientHandler extends Thread {
 
         this.username = usernameRaw;
         this.authenticated = true;
-        sendMessage(Protocol.S2C_LOGIN_SUCCESS);
+        if (version >= 2) {
+            Connection c = connection;
+            this.protocolVersion = Math.min(version, Protocol.VERSION);
+            this.capabilities = Capability.negotiate(requestedCaps, c != null && !c.isLegacyClient());
+            // LOGIN_SUCCESS 는 압축 여부와 상관없이 작으므로 클라이언트가 답을 받기 전에 압축이 켜져도 된다.
+            if (c != null && capabilities.contains(Capability.DEFLATE)) c.enableCompression();
+            sendMessage(Protocol.S2C_LOGIN_SUCCESS + ":" + protocolVersion + ":" + Capability.format(capabilities));
+            if (capabilities.contains(Capability.RTT)) probeRtt();
+        } else {
+            sendMessage(Protocol.S2C_LOGIN_SUCCESS);
+        }
         server.addClientToLobby(this);
     }
 
@@ -170,22 +466,23 @@ public class ClientHandler extends Thread {
         sendMessage(Protocol.S2C_JOIN_SUCCESS + ":" + newRoom.getRoomId() + ":" + newRoom.getRoomName());
     }
 
-    private void handleJoinRoom(String roomIdStr) {
+    private void handleJoinRoom(int roomId) {
         if (currentRoom != null) {
             sendMessage(Protocol.S2C_SYSTEM_MSG + ":이미 방에 입장해 있습니다.");
             return;
         }
-        try {
-            int roomId = Integer.parseInt(roomIdStr);
-            GameRoom room = server.joinRoom(roomId, this);
-            if (room != null) {
-                this.currentRoom = room;
-                sendMessage(Protocol.S2C_JOIN_SUCCESS + ":" + room.getRoomId() + ":" + room.getRoomName());
-            } else {
-                sendMessage(Protocol.S2C_JOIN_FAIL + ":방이 꽉 찼거나 게임 중입니다.");
-            }
-        } catch (NumberFormatException e) {
-            sendMessage(Protocol.S2C_JOIN_FAIL + ":잘못된 방 ID입니다.");
+        GameRoom target = server.getRoom(roomId);
+        if (target != null && !target.inMailbox()) {
+            // roomFor/runBatch 가 미리 그 방의 메일박스로 옮겨 두므로 보통은 오지 않는다. 그래도 방 상태를 밖에서 만지지 않도록 넘긴다.
+            target.execute(() -> handleJoinRoom(roomId));
+            return;
+        }
+        GameRoom room = server.joinRoom(roomId, this);
+        if (room != null) {
+            this.currentRoom = room;
+            sendMessage(Protocol.S2C_JOIN_SUCCESS + ":" + room.getRoomId() + ":" + room.getRoomName());
+        } else {
+            sendMessage(Protocol.S2C_JOIN_FAIL + ":방이 꽉 찼거나 게임 중입니다.");
         }
     }
 
@@ -210,12 +507,12 @@ public class ClientHandler extends Thread {
         currentRoom.kickPlayer(this, targetUsername);
     }
 
-    private void handlePlaceBlock(String data) {
+    private void handlePlaceBlock(PlaceCommand command) {
         if (currentRoom == null || !currentRoom.isGameStarted()) {
             sendMessage(Protocol.S2C_INVALID_MOVE + ":게임 중이 아닙니다.");
             return;
         }
-        currentRoom.handlePlaceBlock(this, data);
+        currentRoom.handlePlaceBlock(this, command);
     }
 
     // handlePassTurn Removed
@@ -229,27 +526,112 @@ public class ClientHandler extends Thread {
     }
 
     public void sendMessage(String message) {
-        if (out != null) {
-            try {
-                out.writeObject(message);
-                out.flush();
-                System.out.println("Server (S2C to " + (username != null ? username : "???") + "): " + message);
-            } catch (IOException e) {
-                System.err.println("S2C Send Error to " + username + ": " + e.getMessage());
-                cleanup();
+        String id = replyTo;
+        if (id != null && replyThread == Thread.currentThread()) {
+            // ID 가 붙은 응답은 type 이 달라져 덮어쓰기(STATE) 대상이 되지 않으므로 큐에서 사라지지 않는다.
+            int colon = message.indexOf(':');
+            String tag = Protocol.REQUEST_ID_SEPARATOR + id;
+            message = colon < 0 ? message + tag : message.substring(0, colon) + tag + message.substring(colon);
+        }
+        sendMessage(new OutboundMessage(message));
+    }
+
+    // 캐시해 둔 응답을 보낸다. 요청 ID 를 붙여야 하는 응답이면 ID 를 붙인 새 메시지를 만든다.
+    void sendReply(OutboundMessage cached) {
+        if (replyTo != null && replyThread == Thread.currentThread()) {
+            sendMessage(cached.text);
+        } else {
+            sendMessage(cached);
+        }
+    }
+
+    // 여러 수신자에게 같은 메시지를 보낼 때는 OutboundMessage 하나를 만들어 공유한다.
+    void sendMessage(OutboundMessage message) {
+        if (batchReplies != null && batchThread == Thread.currentThread()) {
+            if (!message.isBinary()) {
+                batchReplies.add(message.text);
+                return;
+            }
+            // 이진 프레임은 BATCH_REPLY 에 담을 수 없으므로 그때까지 모인 응답을 먼저 보내 순서를 지킨다.
+            flushBatchReplies();
+            batchReplies = new ArrayList<>();
+        }
+        Connection c = connection;
+        if (c != null && !c.isClosed()) {
+            c.send(message);
+            if (Log.tracing(username, currentRoom)) {
+                Log.trace("Server (S2C to " + (username != null ? username : "???") + "): " + message.text);
             }
         }
     }
 
     private void cleanup() {
+        if (connection != null) connection.closeGracefully();
+    }
+
+    int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    // 평활한 왕복 시간(ns). 잰 적이 없으면 0
+    long getRttNanos() {
+        return rttNanos;
+    }
+
+    // 최근 표본 중 최소 왕복 시간(ns). 잰 적이 없으면 0
+    long getMinRttNanos() {
+        return minRttNanos;
+    }
+
+    // 타이머 스레드에서 다시 걸린다. 연결이 끊기면 다음 차례에 멈춘다.
+    private void probeRtt() {
+        if (disconnected) return;
+        long now = System.nanoTime();
+        pingSentNanos = now;
+        sendMessage(new OutboundMessage(Protocol.S2C_PING + ":" + now));
+        server.timer().schedule(this::probeRtt, RTT_PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // 마지막으로 보낸 토큰만 받으므로 꾸민 토큰은 걸러진다. 하지만 클라이언트가 PONG 을 일부러 늦게 보내면
+    // 왕복 시간은 그만큼 커 보인다. 턴 시간 보정을 제한하는 것은 GameRoom 의 상한(blokus.lag.credit.max)뿐이다.
+    private void onPong(String token) {
+        long sent = pingSentNanos;
+        long echoed;
         try {
-            if (in != null) in.close();
-            if (out != null) out.close();
-            if (socket != null) socket.close();
-        } catch (IOException e) {
-        } finally {
-            server.onClientDisconnect(this);
+            echoed = Long.parseLong(token);
+        } catch (NumberFormatException e) {
+            return;
         }
+        if (sent == 0 || echoed != sent) return;
+        pingSentNanos = 0;
+
+        long sample = System.nanoTime() - sent;
+        long rtt = rttNanos;
+        rtt = rtt == 0 ? sample : rtt + (sample - rtt) / 8;
+        rttNanos = rtt;
+        recentRtt[recentRttCount++ % RTT_WINDOW] = sample;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < Math.min(recentRttCount, RTT_WINDOW); i++) min = Math.min(min, recentRtt[i]);
+        minRttNanos = min;
+        GameRoom room = currentRoom;
+        if (room != null) room.recordLatency(sample);
+        sendMessage(new OutboundMessage(Protocol.S2C_LATENCY + ":" + rtt / 1_000_000));
+    }
+
+    int getLeaderboardVersionSeen() {
+        return leaderboardVersionSeen;
+    }
+
+    void setLeaderboardVersionSeen(int version) {
+        this.leaderboardVersionSeen = version;
+    }
+
+    boolean isSubscribedToRooms() {
+        return subscribedToRooms;
+    }
+
+    boolean has(Capability capability) {
+        return capabilities.contains(capability);
     }
 
     public String getUsername() { return username; }
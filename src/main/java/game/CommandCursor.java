@@ -0,0 +1,170 @@
+package game;
+
+// C2S 메시지를 split 없이 앞에서부터 읽는 커서. 연결마다 하나를 두고 reset 으로 재사용한다.
+// 잘못된 입력은 예외 대신 ok() == false 로 알린다. 한 번 실패하면 이후의 읽기도 모두 실패한다.
+// 명령어 뒤에는 '@' 와 요청 ID 를 붙일 수 있다 (예: PLACE@17:I1:0:0:0:0). 서버는 그 명령의 직접 응답에 같은 ID 를 붙인다.
+final class CommandCursor {
+    private static final int MAX_REQUEST_ID_LENGTH = 16;
+
+    private static final String[] OPCODES = {
+            Protocol.C2S_LOGIN,
+            Protocol.C2S_GET_ROOM_LIST,
+            Protocol.C2S_CREATE_ROOM,
+            Protocol.C2S_JOIN_ROOM,
+            Protocol.C2S_LEAVE_ROOM,
+            Protocol.C2S_START_GAME,
+            Protocol.C2S_KICK_PLAYER,
+            Protocol.C2S_PLACE_BLOCK,
+            Protocol.C2S_CHAT,
+            Protocol.C2S_GET_LEADERBOARD,
+            Protocol.C2S_RESIGN_COLOR,
+            Protocol.C2S_WHISPER,
+            Protocol.C2S_RESIGN_PEERLESS,
+            Protocol.C2S_PONG,
+            Protocol.C2S_RESYNC,
+            Protocol.C2S_BATCH,
+            Protocol.C2S_SUBSCRIBE,
+            Protocol.C2S_UNSUBSCRIBE,
+    };
+
+    private String message;
+    private int pos;
+    private boolean ok;
+    private String requestId;
+
+    CommandCursor reset(String message) {
+        this.message = message;
+        this.pos = 0;
+        this.ok = true;
+        this.requestId = null;
+        return this;
+    }
+
+    // 메시지 앞의 명령어를 Protocol 상수 그대로 돌려주고 뒤의 ':' 까지 넘긴다. 모르는 명령어면 null
+    String opcode() {
+        int end = message.indexOf(':');
+        if (end < 0) end = message.length();
+        int opEnd = message.lastIndexOf(Protocol.REQUEST_ID_SEPARATOR, end - 1);
+        if (opEnd >= 0) {
+            if (!isRequestId(opEnd + 1, end)) return opcodeFail();
+            requestId = message.substring(opEnd + 1, end);
+        } else {
+            opEnd = end;
+        }
+        for (String op : OPCODES) {
+            if (op.length() == opEnd && message.regionMatches(0, op, 0, opEnd)) {
+                pos = Math.min(end + 1, message.length());
+                return op;
+            }
+        }
+        return opcodeFail();
+    }
+
+    // opcode() 가 읽은 요청 ID. 없으면 null
+    String requestId() {
+        return requestId;
+    }
+
+    // 영문/숫자/'-'/'_' 로 된 1~16자
+    private boolean isRequestId(int from, int to) {
+        if (to <= from || to - from > MAX_REQUEST_ID_LENGTH) return false;
+        for (int i = from; i < to; i++) {
+            char c = message.charAt(i);
+            boolean valid = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '-' || c == '_';
+            if (!valid) return false;
+        }
+        return true;
+    }
+
+    private String opcodeFail() {
+        ok = false;
+        requestId = null;
+        return null;
+    }
+
+    // 다음 ':' 전까지의 10진 정수. 비었거나 숫자가 아니면 실패 처리하고 0
+    int nextInt() {
+        if (!ok) return 0;
+        int end = fieldEnd();
+        int i = pos;
+        boolean negative = i < end && message.charAt(i) == '-';
+        if (negative) i++;
+        if (i == end || end - i > 9) return fail();
+        int value = 0;
+        for (; i < end; i++) {
+            char c = message.charAt(i);
+            if (c < '0' || c > '9') return fail();
+            value = value * 10 + (c - '0');
+        }
+        advance(end);
+        return negative ? -value : value;
+    }
+
+    // 다음 ':' 전까지의 문자열. 끝에 도달했으면 빈 문자열
+    String nextField() {
+        if (!ok) return "";
+        int end = fieldEnd();
+        String field = message.substring(pos, end);
+        advance(end);
+        return field;
+    }
+
+    // 다음 필드가 candidates 중 하나와 같으면 그 상수를 그대로 돌려준다. 없으면 실패 처리하고 null
+    String nextToken(String[] candidates) {
+        if (!ok) return null;
+        int end = fieldEnd();
+        int length = end - pos;
+        for (String candidate : candidates) {
+            if (candidate.length() == length && message.regionMatches(pos, candidate, 0, length)) {
+                advance(end);
+                return candidate;
+            }
+        }
+        fail();
+        return null;
+    }
+
+    // "길이:본문" 형식의 필드 (BATCH 항목). 본문은 정확히 길이만큼의 문자이며 ':' 가 들어 있어도 된다.
+    String nextSized() {
+        int length = nextInt();
+        if (!ok) return null;
+        int end = pos + length;
+        if (length < 0 || end > message.length() || (end < message.length() && message.charAt(end) != ':')) {
+            fail();
+            return null;
+        }
+        String field = message.substring(pos, end);
+        advance(end);
+        return field;
+    }
+
+    // ':' 를 포함한 나머지 전부
+    String rest() {
+        if (!ok) return "";
+        String rest = message.substring(pos);
+        pos = message.length();
+        return rest;
+    }
+
+    boolean hasMore() {
+        return ok && pos < message.length();
+    }
+
+    boolean ok() {
+        return ok;
+    }
+
+    private int fieldEnd() {
+        int end = message.indexOf(':', pos);
+        return end < 0 ? message.length() : end;
+    }
+
+    private void advance(int fieldEnd) {
+        pos = Math.min(fieldEnd + 1, message.length());
+    }
+
+    private int fail() {
+        ok = false;
+        return 0;
+    }
+}
@@ -0,0 +1,192 @@
+package game;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 하나의 클라이언트 소켓에 대한 전송 계층. 세션/게임 로직은 ClientHandler 가 담당한다.
+abstract class Connection {
+    protected static final int READ_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_READ_BUFFER_SIZE = WireCodec.MAX_MESSAGE_BYTES + 16;
+    // 연결 하나에 쌓아 둘 수 있는 송신 메시지 수. 넘치면 읽지 않는 클라이언트로 보고 바로 끊는다.
+    static final int OUTBOUND_CAPACITY = Integer.getInteger("blokus.outbound.capacity", 1024);
+    // 송신 큐에 쌓인 문자 수가 HIGH 를 넘으면 MessageClass 별 정책을 적용하고, LOW 아래로 빠지면 해제한다.
+    static final int OUTBOUND_HIGH_WATERMARK = Integer.getInteger("blokus.outbound.high", 256 * 1024);
+    static final int OUTBOUND_LOW_WATERMARK = Integer.getInteger("blokus.outbound.low", 64 * 1024);
+    // 밀림 상태가 이 시간(ms) 넘게 이어지면 느린 클라이언트로 보고 끊는다.
+    static final long SLOW_CONSUMER_DEADLINE_NANOS =
+            Integer.getInteger("blokus.outbound.deadline", 15_000) * 1_000_000L;
+    // 이 시간(ms) 동안 아무것도 받지 못하면 PING 을 보내고, IDLE_TIMEOUT 동안 받지 못하면 끊는다.
+    static final int HEARTBEAT_INTERVAL_MS = Integer.getInteger("blokus.heartbeat.interval", 15_000);
+    static final long IDLE_TIMEOUT_NANOS = Integer.getInteger("blokus.heartbeat.timeout", 45_000) * 1_000_000L;
+    private static final OutboundMessage PING = new OutboundMessage(Protocol.S2C_PING);
+
+    protected final ClientHandler handler;
+    // 클라이언트가 보낸 첫 바이트를 보고 정해지며, 그 전에는 null
+    protected volatile WireCodec codec;
+    protected final OutboundQueue outbound =
+            new OutboundQueue(OUTBOUND_CAPACITY, OUTBOUND_HIGH_WATERMARK, OUTBOUND_LOW_WATERMARK);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicBoolean aborting = new AtomicBoolean(false);
+    private volatile long lastReadNanos = System.nanoTime();
+    private HashedWheelTimer timer;
+    private volatile HashedWheelTimer.Timeout heartbeat;
+    // DEFLATE 가 켜진 뒤에만 생긴다. 압축 상태가 연결마다 달라서 압축된 프레임은 다른 수신자와 나눠 쓰지 않는다.
+    private volatile FrameDeflate.Compressor compressor;
+
+    protected Connection(ClientHandler handler) {
+        this.handler = handler;
+        handler.attach(this);
+    }
+
+    // 큐에 넣기만 하고 바로 돌아온다. 실제 인코딩과 쓰기는 연결의 writer(전용 스레드 또는 EventLoop)가 한다.
+    void send(OutboundMessage message) {
+        if (codec == null || isClosed() || aborting.get()) return;
+        if (!enqueue(message)) {
+            abortSlowConsumer("송신 큐가 가득 찼습니다.");
+            return;
+        }
+        if (!WriteBatch.defer(this)) wakeWriter();
+    }
+
+    private boolean enqueue(OutboundMessage message) {
+        if (!outbound.isCongested()) return outbound.offer(message);
+
+        if (outbound.congestedNanos() > SLOW_CONSUMER_DEADLINE_NANOS) {
+            abortSlowConsumer("송신 큐가 " + (SLOW_CONSUMER_DEADLINE_NANOS / 1_000_000) + "ms 넘게 밀려 있습니다.");
+            return true;
+        }
+        switch (message.messageClass) {
+            case STATE:
+                return outbound.offerLatest(message.type, message);
+            case CHAT:
+                String truncated = MessageClass.truncateChat(message.text);
+                if (truncated == message.text) return outbound.offer(message);
+                ServerMetrics.recordChatTruncated();
+                return outbound.offer(new OutboundMessage(truncated));
+            default:
+                return outbound.offer(message);
+        }
+    }
+
+    private void abortSlowConsumer(String reason) {
+        if (abortOnce(reason)) ServerMetrics.recordSlowConsumerDisconnect();
+    }
+
+    private boolean abortOnce(String reason) {
+        if (!aborting.compareAndSet(false, true)) return false;
+        Log.warn(describe() + " " + reason + " 연결을 끊습니다.");
+        abort();
+        return true;
+    }
+
+    // 연결마다 타이머 항목 하나를 계속 다시 걸어 쓴다. 스레드나 연결별 타이머는 만들지 않는다.
+    void startHeartbeat(HashedWheelTimer timer) {
+        this.timer = timer;
+        heartbeat = timer.schedule(this::checkIdle, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // 타이머 스레드에서 실행되므로 큐에 넣거나 abort 를 요청하는 것 외에는 하지 않는다.
+    private void checkIdle() {
+        if (isClosed()) return;
+        // PONG 을 모르는 기존 클라이언트는 PING 에 답하지 않으므로 TCP keepalive 에 맡긴다.
+        if (codec instanceof LegacyStreamCodec) return;
+
+        long idle = System.nanoTime() - lastReadNanos;
+        if (idle >= IDLE_TIMEOUT_NANOS) {
+            if (abortOnce((idle / 1_000_000) + "ms 동안 응답이 없습니다.")) ServerMetrics.recordIdleReaped();
+            return;
+        }
+        if (codec != null && idle >= TimeUnit.MILLISECONDS.toNanos(HEARTBEAT_INTERVAL_MS)) {
+            send(PING);
+        }
+        heartbeat = timer.schedule(this::checkIdle, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // LOGIN 에서 DEFLATE 가 켜지면 부른다. 그 뒤로 writer 가 꺼내는 큰 프레임부터 압축된다.
+    void enableCompression() {
+        if (codec instanceof FrameCodec && compressor == null) compressor = new FrameDeflate.Compressor();
+    }
+
+    // writer 스레드에서만 부른다.
+    protected final ByteBuffer encode(OutboundMessage message) {
+        ByteBuffer buf = message.encodedFor(codec);
+        FrameDeflate.Compressor c = compressor;
+        return c != null ? c.compress(buf) : buf;
+    }
+
+    // writer 가 끝날 때 부른다. Deflater 의 네이티브 메모리를 바로 돌려준다.
+    protected final void releaseCompressor() {
+        FrameDeflate.Compressor c = compressor;
+        if (c != null) {
+            compressor = null;
+            c.end();
+        }
+    }
+
+    // 큐에 새 메시지가 들어왔음을 writer 에게 알린다.
+    protected abstract void wakeWriter();
+
+    // 코덱이 정해진 직후, 다른 어떤 메시지보다 먼저 나가야 하는 바이트
+    protected abstract void writePreamble(ByteBuffer buf) throws IOException;
+
+    // 큐에 남은 메시지를 모두 내보낸 뒤 닫는다. (로그인 실패 응답 등)
+    abstract void closeGracefully();
+
+    // 어느 스레드에서 불러도 블로킹되지 않는다. 연결 정리(onDisconnect)는 연결을 소유한 스레드에서 일어난다.
+    abstract void abort();
+
+    protected abstract void closeTransport();
+
+    final void close() {
+        if (closed.compareAndSet(false, true)) {
+            HashedWheelTimer.Timeout h = heartbeat;
+            if (h != null) h.cancel();
+            closeTransport();
+            handler.onDisconnect();
+        }
+    }
+
+    final boolean isClosed() {
+        return closed.get();
+    }
+
+    // 읽은 바이트를 디코딩해 완성된 메시지마다 ClientHandler 로 넘긴다. in 은 읽기 모드(flip 된 상태)여야 한다.
+    protected final void onBytes(ByteBuffer in) throws IOException {
+        lastReadNanos = System.nanoTime();
+        if (codec == null) {
+            WireCodec detected = WireCodec.detect(in);
+            if (detected == null) return;
+            ByteBuffer preamble = detected.preamble();
+            if (preamble != null) writePreamble(preamble);
+            // preamble 을 쓴 뒤에 공개해야 send() 로 들어온 메시지가 그보다 앞서 나가지 않는다.
+            codec = detected;
+        }
+        String message;
+        while (!isClosed() && (message = codec.decode(in)) != null) {
+            handler.onMessage(message);
+        }
+    }
+
+    // compact 후 가득 찬 읽기 버퍼를 키운다. 한 메시지가 상한을 넘으면 예외.
+    protected static ByteBuffer grow(ByteBuffer buf) throws IOException {
+        if (buf.capacity() >= MAX_READ_BUFFER_SIZE) {
+            throw new StreamCorruptedException("메시지가 너무 큽니다.");
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.min(buf.capacity() * 2, MAX_READ_BUFFER_SIZE));
+        buf.flip();
+        larger.put(buf);
+        return larger;
+    }
+
+    // ObjectStream 으로 접속한 기존 클라이언트인지
+    boolean isLegacyClient() {
+        return codec instanceof LegacyStreamCodec;
+    }
+
+    protected String describe() {
+        return handler.getUsername() != null ? handler.getUsername() : "Socket";
+    }
+}
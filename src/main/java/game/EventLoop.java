@@ -0,0 +1,85 @@
+package game;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// 논블로킹 SocketChannel 여러 개를 하나의 Selector 로 처리하는 스레드
+final class EventLoop extends Thread {
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    EventLoop(String name) throws IOException {
+        super(name);
+        this.selector = Selector.open();
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != this) {
+            selector.wakeup();
+        }
+    }
+
+    void register(SocketChannel channel, BlokusServer server) {
+        execute(() -> {
+            ClientHandler handler = new ClientHandler(server);
+            NioConnection connection = new NioConnection(channel, this, handler);
+            try {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.attachKey(key);
+                connection.startHeartbeat(server.timer());
+            } catch (ClosedChannelException e) {
+                connection.close();
+            }
+        });
+    }
+
+    @Override
+    public void run() {
+        while (!isInterrupted()) {
+            try {
+                if (tasks.isEmpty()) {
+                    selector.select();
+                } else {
+                    selector.selectNow();
+                }
+            } catch (IOException e) {
+                Log.error(getName() + " select 오류: " + e.getMessage());
+                continue;
+            }
+
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                NioConnection connection = (NioConnection) key.attachment();
+                try {
+                    if (key.isValid() && key.isReadable()) connection.onReadable();
+                    if (key.isValid() && key.isWritable()) connection.flush();
+                } catch (RuntimeException e) {
+                    Log.error(getName() + " 처리 중 예외 발생: " + e.getMessage(), e);
+                    connection.close();
+                }
+            }
+
+            runTasks();
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.error(getName() + " 작업 처리 중 예외 발생: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package game;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// 프레임 = varint(본문 길이) + 본문, 본문 = opcode 1바이트 + 페이로드.
+// 연결을 연 쪽(클라이언트)은 첫 4바이트로 MAGIC 을 보낸다.
+final class FrameCodec implements WireCodec {
+    static final int MAGIC = 0x424C4B01; // "BLK" + 1
+
+    static final byte OP_TEXT = 1;
+    // BOARD_SNAPSHOT. 페이로드 = varint(seq) + 보드 런 바이트들 (packBoard 참고)
+    static final byte OP_BOARD = 2;
+    // DEFLATE 기능. 페이로드 = 위 프레임 본문(opcode 포함)을 연결의 deflate 스트림으로 압축한 것 (FrameDeflate 참고)
+    static final byte OP_DEFLATE = 3;
+
+    static final int BOARD_SIZE = 20;
+    private static final int BOARD_CELLS = BOARD_SIZE * BOARD_SIZE;
+    private static final int MAX_RUN = 32;
+
+    @Override
+    public String decode(ByteBuffer in) throws IOException {
+        int start = in.position();
+        int length = readVarint(in);
+        if (length == 0 || length > MAX_MESSAGE_BYTES) {
+            throw new StreamCorruptedException("잘못된 프레임 길이: " + length);
+        }
+        if (length < 0 || in.remaining() < length) {
+            in.position(start);
+            return null;
+        }
+        byte opcode = in.get();
+        if (opcode != OP_TEXT) {
+            throw new StreamCorruptedException("알 수 없는 opcode: " + opcode);
+        }
+        int payloadLength = length - 1;
+        String message = new String(in.array(), in.arrayOffset() + in.position(), payloadLength, StandardCharsets.UTF_8);
+        in.position(in.position() + payloadLength);
+        return message;
+    }
+
+    @Override
+    public ByteBuffer encode(String message) {
+        return encodeText(message);
+    }
+
+    @Override
+    public ByteBuffer preamble() {
+        return null;
+    }
+
+    @Override
+    public ByteBuffer encodeBoard(int seq, byte[] packed) {
+        int length = 1 + varintSize(seq) + packed.length;
+        ByteBuffer buf = ByteBuffer.allocate(varintSize(length) + length);
+        writeVarint(buf, length);
+        buf.put(OP_BOARD);
+        writeVarint(buf, seq);
+        buf.put(packed);
+        buf.flip();
+        return buf;
+    }
+
+    // 보드를 행 우선으로 훑어 같은 색이 이어지는 구간마다 1바이트(상위 3비트 색, 하위 5비트 길이-1)로 적는다.
+    // 빈 보드는 13바이트, 게임 막바지에도 보통 200바이트 안쪽이다.
+    static byte[] packBoard(int[][] board) {
+        byte[] out = new byte[BOARD_CELLS];
+        int n = 0;
+        int run = 0;
+        int color = board[0][0];
+        for (int i = 0; i < BOARD_CELLS; i++) {
+            int cell = board[i / BOARD_SIZE][i % BOARD_SIZE];
+            if (cell != color || run == MAX_RUN) {
+                out[n++] = (byte) (color << 5 | (run - 1));
+                color = cell;
+                run = 0;
+            }
+            run++;
+        }
+        out[n++] = (byte) (color << 5 | (run - 1));
+        return Arrays.copyOf(out, n);
+    }
+
+    // packBoard 의 반대. 중간 배열 없이 board 에 바로 채운다.
+    static void unpackBoard(byte[] src, int offset, int length, int[][] board) throws StreamCorruptedException {
+        int cell = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int color = (src[i] & 0xFF) >>> 5;
+            int run = (src[i] & 0x1F) + 1;
+            if (cell + run > BOARD_CELLS) throw new StreamCorruptedException("보드 데이터가 너무 깁니다.");
+            for (int end = cell + run; cell < end; cell++) {
+                board[cell / BOARD_SIZE][cell % BOARD_SIZE] = color;
+            }
+        }
+        if (cell != BOARD_CELLS) throw new StreamCorruptedException("보드 데이터가 모자랍니다: " + cell);
+    }
+
+    static ByteBuffer encodeText(String message) {
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        int length = payload.length + 1;
+        ByteBuffer buf = ByteBuffer.allocate(varintSize(length) + length);
+        writeVarint(buf, length);
+        buf.put(OP_TEXT);
+        buf.put(payload);
+        buf.flip();
+        return buf;
+    }
+
+    static void writeMagic(OutputStream out) throws IOException {
+        out.write(MAGIC >>> 24);
+        out.write(MAGIC >>> 16);
+        out.write(MAGIC >>> 8);
+        out.write(MAGIC);
+    }
+
+    static void writeFrame(OutputStream out, String message) throws IOException {
+        ByteBuffer buf = encodeText(message);
+        out.write(buf.array(), buf.arrayOffset(), buf.limit());
+    }
+
+    // 스트림이 프레임 경계에서 끝나면 null
+    static String readFrame(InputStream in) throws IOException {
+        byte[] body = readBody(in);
+        if (body == null) return null;
+        if (body[0] != OP_TEXT) {
+            throw new StreamCorruptedException("알 수 없는 opcode: " + body[0]);
+        }
+        return text(body);
+    }
+
+    // opcode 를 포함한 프레임 본문. 스트림이 프레임 경계에서 끝나면 null
+    static byte[] readBody(InputStream in) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (shift == 0) return null;
+                throw new EOFException();
+            }
+            if (shift == 28 && (b & 0xF8) != 0) throw new StreamCorruptedException("잘못된 varint");
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+        if (length < 1 || length > MAX_MESSAGE_BYTES) {
+            throw new StreamCorruptedException("잘못된 프레임 길이: " + length);
+        }
+        byte[] body = in.readNBytes(length);
+        if (body.length < length) throw new EOFException();
+        return body;
+    }
+
+    static String text(byte[] body) {
+        return new String(body, 1, body.length - 1, StandardCharsets.UTF_8);
+    }
+
+    // OP_BOARD 본문을 board 에 풀고 seq 를 돌려준다.
+    static int readBoard(byte[] body, int[][] board) throws StreamCorruptedException {
+        ByteBuffer in = ByteBuffer.wrap(body, 1, body.length - 1);
+        int seq = readVarint(in);
+        if (seq < 0) throw new StreamCorruptedException("잘못된 보드 프레임");
+        unpackBoard(body, in.position(), in.remaining(), board);
+        return seq;
+    }
+
+    // 아직 다 도착하지 않았으면 -1
+    private static int readVarint(ByteBuffer in) throws StreamCorruptedException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (!in.hasRemaining()) return -1;
+            byte b = in.get();
+            if (shift == 28 && (b & 0xF8) != 0) throw new StreamCorruptedException("잘못된 varint");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    static void writeVarint(ByteBuffer buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+}
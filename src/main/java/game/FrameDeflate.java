@@ -0,0 +1,106 @@
+package game;
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// DEFLATE 기능. 연결마다 deflate 스트림 하나를 열어 두고, THRESHOLD 바이트가 넘는 프레임만 OP_DEFLATE 로 감싸 보낸다.
+// 스트림은 메시지 사이에서 끊지 않으므로(SYNC_FLUSH) 앞서 보낸 점수판/방 목록이 다음 메시지의 사전 역할을 한다.
+// 각 메시지 끝의 00 00 FF FF 는 양쪽이 다 아는 값이라 보내지 않는다.
+final class FrameDeflate {
+    static final int THRESHOLD = Integer.getInteger("blokus.deflate.threshold", 256);
+    private static final int LEVEL = Integer.getInteger("blokus.deflate.level", 6);
+    private static final byte[] SYNC_TAIL = {0, 0, (byte) 0xFF, (byte) 0xFF};
+
+    // 스트림 시작 전에 양쪽이 미리 넣어 두는 사전. 자주 나오는 것일수록 뒤에 둔다.
+    // 바꾸면 기존 클라이언트가 풀지 못하므로 새 기능 이름과 함께 바꿔야 한다.
+    private static final byte[] DICTIONARY = (
+            "SYSTEM_MSG:ROOM_UPDATE:[,host]GAME_OVER:PEERLESS_BOARD_UPDATE:PEERLESS_TIMER_UPDATE:"
+                    + "HAND_UPDATE:HAND_INIT:HAND_REMOVE:TURN_UPDATE:CLOCK:TURN:MAIN:PREP:COUNTDOWN:"
+                    + "ROOM_EVENT:ADD:UPDATE:REMOVE:CLASSIC]PEERLESS];[1,room,1/4,[2,[3,"
+                    + "BOARD_SNAPSHOT:GAME_STATE:BOARD_DELTA:LEADERBOARD_DATA:ROOM_LIST:.0;/0.0;/1.0;/2.0;/"
+                    + "0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,"
+                    + "0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0")
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private FrameDeflate() {
+    }
+
+    // 서버 쪽. 연결의 writer 스레드에서만 쓴다.
+    static final class Compressor {
+        private final Deflater deflater = new Deflater(LEVEL, true);
+        private byte[] out = new byte[1024];
+
+        Compressor() {
+            deflater.setDictionary(DICTIONARY);
+        }
+
+        // FrameCodec 으로 인코딩된 프레임을 받아, 크면 압축한 새 프레임을, 작으면 그대로 돌려준다.
+        ByteBuffer compress(ByteBuffer frame) {
+            if (frame.remaining() <= THRESHOLD) return frame;
+            long start = System.nanoTime();
+
+            // 길이 varint 를 건너뛴 본문(opcode 포함)만 압축한다.
+            int header = 1;
+            while ((frame.get(frame.position() + header - 1) & 0x80) != 0) header++;
+            deflater.setInput(frame.array(), frame.arrayOffset() + frame.position() + header, frame.remaining() - header);
+            int n = 0;
+            while (true) {
+                n += deflater.deflate(out, n, out.length - n, Deflater.SYNC_FLUSH);
+                if (n < out.length) break;
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            n -= SYNC_TAIL.length;
+
+            int length = 1 + n;
+            ByteBuffer buf = ByteBuffer.allocate(FrameCodec.varintSize(length) + length);
+            FrameCodec.writeVarint(buf, length);
+            buf.put(FrameCodec.OP_DEFLATE);
+            buf.put(out, 0, n);
+            buf.flip();
+            ServerMetrics.recordCompression(frame.remaining(), buf.remaining(), System.nanoTime() - start);
+            return buf;
+        }
+
+        void end() {
+            deflater.end();
+        }
+    }
+
+    // 클라이언트 쪽. 수신 스레드 하나에서만 쓴다.
+    static final class Decompressor {
+        private final Inflater inflater = new Inflater(true);
+        private byte[] out = new byte[4096];
+
+        Decompressor() {
+            inflater.setDictionary(DICTIONARY);
+        }
+
+        // OP_DEFLATE 본문을 풀어 원래 프레임 본문(opcode 포함)을 돌려준다.
+        byte[] inflate(byte[] body) throws StreamCorruptedException {
+            byte[] in = Arrays.copyOfRange(body, 1, body.length + SYNC_TAIL.length);
+            System.arraycopy(SYNC_TAIL, 0, in, body.length - 1, SYNC_TAIL.length);
+            inflater.setInput(in);
+            int n = 0;
+            try {
+                while (true) {
+                    n += inflater.inflate(out, n, out.length - n);
+                    if (n == out.length) {
+                        if (out.length >= WireCodec.MAX_MESSAGE_BYTES) throw new StreamCorruptedException("압축 프레임이 너무 큽니다.");
+                        out = Arrays.copyOf(out, out.length * 2);
+                    } else if (inflater.needsInput() || inflater.finished()) {
+                        break;
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new StreamCorruptedException("잘못된 압축 프레임: " + e.getMessage());
+            }
+            if (n == 0) throw new StreamCorruptedException("빈 압축 프레임");
+            return Arrays.copyOf(out, n);
+        }
+    }
+}
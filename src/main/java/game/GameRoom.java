@@ -4,8 +4,12 @@ import java.awt.*;
 import java.io.Serializable;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+// 방 상태는 방 메일박스(RoomMailbox) 안에서만 읽고 쓴다. 명령, 타이머 틱, 접속 종료가 모두 메일박스의 작업으로 차례로 처리되므로
+// 게임 로직에는 락이 없다. 다른 스레드에서 읽는 것은 방 목록에 보이는 값(players, gameStarted, 이름/모드)뿐이다.
 public class GameRoom implements Serializable {
     public enum GameMode { CLASSIC, PEERLESS }
     private enum PeerlessPhase { NONE, PREP, COUNTDOWN, MAIN }
@@ -15,15 +19,20 @@ public class GameRoom implements Serializable {
     private ClientHandler host;
     private BlokusServer server;
     private GameMode gameMode;
+    private final transient RoomLoop loop;
+    private final transient RoomMailbox mailbox;
 
-    private List<ClientHandler> players = Collections.synchronizedList(new ArrayList<>());
+    // 방 목록/귓속말에서 다른 스레드가 훑으므로 복사본 리스트를 쓴다. 바뀌는 것은 입장/퇴장 때뿐이다.
+    private List<ClientHandler> players = new CopyOnWriteArrayList<>();
 
-    private boolean gameStarted = false;
+    private volatile boolean gameStarted = false;
     private int[][] board = new int[20][20];
+    // 보드가 바뀔 때마다 1씩 오른다. BOARD_DELTA 의 순서 확인용
+    private int boardSeq = 0;
 
-    private Map<ClientHandler, List<BlokusPiece>> playerHands = Collections.synchronizedMap(new HashMap<>());
-    private Map<ClientHandler, int[]> playerColors = Collections.synchronizedMap(new HashMap<>());
-    private Map<Integer, Boolean> isFirstMoveForColor = Collections.synchronizedMap(new HashMap<>());
+    private Map<ClientHandler, List<BlokusPiece>> playerHands = new HashMap<>();
+    private Map<ClientHandler, int[]> playerColors = new HashMap<>();
+    private Map<Integer, Boolean> isFirstMoveForColor = new HashMap<>();
 
     private int playerCountOnStart = 0;
 
@@ -37,16 +46,29 @@ public class GameRoom implements Serializable {
     private static final int PEERLESS_PREP_TIME_SECONDS = 20;
     private static final int PEERLESS_COUNTDOWN_SECONDS = 3;
     private static final int PEERLESS_MAIN_TIME_SECONDS = 300;
-
-    private transient Timer gameTimer;
-    private transient TimerTask currentTimerTask;
-    private Map<Integer, Integer> remainingTime = Collections.synchronizedMap(new HashMap<>());
-    private Map<Integer, Boolean> isTimedOut = Collections.synchronizedMap(new HashMap<>());
-
-    private transient Timer peerlessTimer;
-    private transient AtomicInteger peerlessSecondsRemaining = new AtomicInteger(0);
+    // CLOCK 기능 클라이언트는 상태가 바뀔 때와 이 주기마다만 CLOCK 을 받고 사이의 초는 직접 센다.
+    private static final int CLOCK_RESYNC_SECONDS = Math.max(1, Integer.getInteger("blokus.clock.resync", 10));
+    // 턴 시계는 서버가 턴을 넘긴 때부터 PLACE 가 도착할 때까지 흐르므로, 잰 편도 지연(최근 최소 RTT/2)만큼 돌려준다.
+    // RTT 는 클라이언트가 PONG 을 늦춰 부풀릴 수 있으므로 이 상한(ms)이 보정의 유일한 한계다.
+    private static final long LAG_CREDIT_MAX_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Integer.getInteger("blokus.lag.credit.max", 150));
+
+    // 시계는 System.nanoTime() 기준 마감 시각으로 둔다. 쓴 시간은 턴이 끝나는 순간 마감 시각과의 차로 한 번에 깎고,
+    // 마감에는 타임아웃(clockTimeout) 하나만 걸어 둔다. clockTick 은 화면 표시용 메시지만 보내고 시간을 깎지 않는다.
+    private transient RoomTick clockTick;
+    private transient RoomTimeout clockTimeout;
+    // 색별 남은 시간(ns). 지금 턴인 색은 turnDeadlineNanos 가 0 이 아닌 동안 마감 시각 쪽이 기준이다.
+    private Map<Integer, Long> remainingNanos = new HashMap<>();
+    private transient long turnStartNanos;
+    private transient long turnDeadlineNanos;
+    private Map<Integer, Boolean> isTimedOut = new HashMap<>();
+
+    private transient long phaseDeadlineNanos;
     private transient PeerlessPhase peerlessGamePhase = PeerlessPhase.NONE;
 
+    // 이 방 플레이어들의 왕복 시간 표본. 수신 스레드에서 기록하고 metrics 스레드가 읽는다.
+    private final transient LatencyHistogram latency = new LatencyHistogram();
+
 
     public GameRoom(int roomId, String roomName, ClientHandler host, BlokusServer server, GameMode gameMode) {
         this.roomId = roomId;
@@ -54,20 +76,62 @@ public class GameRoom implements Serializable {
         this.host = host;
         this.server = server;
         this.gameMode = gameMode;
+        this.loop = server.assignRoomLoop();
+        this.mailbox = new RoomMailbox("방 " + roomId, loop);
+    }
+
+    // 서버 방 목록에서 빠질 때 한 번 부른다. 이후 이 방으로 넘어오는 작업도 같은 루프에서 마저 처리된다.
+    void dispose() {
+        loop.release();
+    }
+
+    // 어느 스레드에서나 부를 수 있다. 넣은 순서대로 이 방의 메일박스에서 실행된다.
+    void execute(Runnable task) {
+        mailbox.execute(task);
+    }
+
+    boolean inMailbox() {
+        return mailbox.inMailbox();
+    }
+
+    void recordLatency(long rttNanos) {
+        latency.record(rttNanos);
+    }
+
+    // 운영용. "방 3 [pa 42ms, pb 180ms] <25ms 0, ..." 지난 보고 이후 표본이 없었으면 null
+    String latencyReport() {
+        String histogram = latency.report();
+        if (histogram == null) return null;
+        StringBuilder sb = new StringBuilder("방 ").append(roomId).append(" [");
+        boolean first = true;
+        for (ClientHandler p : players) {
+            long rtt = p.getRttNanos();
+            if (rtt == 0) continue;
+            if (!first) sb.append(", ");
+            sb.append(p.getUsername()).append(' ').append(rtt / 1_000_000).append("ms");
+            first = false;
+        }
+        return sb.append("] ").append(histogram).toString();
+    }
+
+    // 메일박스 밖에서 불렸으면 call 을 메일박스로 넘기고 true. 이때 응답에는 요청 ID 가 붙지 않는다.
+    private boolean redirect(Runnable call) {
+        if (mailbox.inMailbox()) return false;
+        mailbox.execute(call);
+        return true;
     }
 
     public boolean isPlayerInRoom(String username) {
-        synchronized (players) {
-            for (ClientHandler player : players) {
-                if (player.getUsername().equalsIgnoreCase(username)) {
-                    return true;
-                }
+        for (ClientHandler player : players) {
+            if (player.getUsername().equalsIgnoreCase(username)) {
+                return true;
             }
         }
         return false;
     }
 
-    public synchronized void addPlayer(ClientHandler player) {
+    public void addPlayer(ClientHandler player) {
+        if (redirect(() -> addPlayer(player))) return;
         if (!players.contains(player) && players.size() < 4 && !gameStarted) {
             players.add(player);
             player.setCurrentRoom(this);
@@ -75,14 +139,14 @@ public class GameRoom implements Serializable {
         }
     }
 
-    public synchronized boolean removePlayer(ClientHandler player) {
+    // 메일박스 안에서만 부른다. 방이 비면 true
+    public boolean removePlayer(ClientHandler player) {
         boolean wasHost = player.equals(host);
         players.remove(player);
         player.setCurrentRoom(null);
 
         if (players.isEmpty()) {
-            if (peerlessTimer != null) peerlessTimer.cancel();
-            if (gameTimer != null) gameTimer.cancel();
+            stopClocks();
             return true;
         }
 
@@ -97,7 +161,8 @@ public class GameRoom implements Serializable {
         return false;
     }
 
-    public synchronized void startGame(ClientHandler starter) {
+    public void startGame(ClientHandler starter) {
+        if (redirect(() -> startGame(starter))) return;
         if (!starter.equals(host)) {
             starter.sendMessage(Protocol.S2C_SYSTEM_MSG + ":방장만 게임을 시작할 수 있습니다.");
             return;
@@ -112,12 +177,15 @@ public class GameRoom implements Serializable {
         }
 
         gameStarted = true;
+        turnDeadlineNanos = 0;
+        server.publishRoomChanged(this);
         playerCountOnStart = players.size();
         board = new int[20][20];
+        boardSeq = 0;
         // passCount 초기화 제거
 
         for (int i = 1; i <= 4; i++) {
-            remainingTime.put(i, CLASSIC_INITIAL_TIME_SECONDS);
+            remainingNanos.put(i, TimeUnit.SECONDS.toNanos(CLASSIC_INITIAL_TIME_SECONDS));
             isTimedOut.put(i, false);
         }
 
@@ -141,11 +209,11 @@ public class GameRoom implements Serializable {
             String msgBase = (gameMode == GameMode.CLASSIC) ? Protocol.S2C_GAME_START : Protocol.S2C_GAME_START_PEERLESS;
             p.sendMessage(msgBase + ":" + playerCountOnStart + ":" + myColorsStr + ":" + allPlayerNames.toString());
 
-            sendHandUpdate(p);
+            sendHandInit(p);
+            sendBoardSnapshot(p);
         }
 
         if (gameMode == GameMode.CLASSIC) {
-            gameTimer = new Timer();
             currentPlayerTurnIndex = -1;
             advanceTurn();
         } else {
@@ -154,32 +222,8 @@ public class GameRoom implements Serializable {
     }
 
     private void startPeerlessPrepTimer() {
-        peerlessGamePhase = PeerlessPhase.PREP;
-        peerlessSecondsRemaining.set(PEERLESS_PREP_TIME_SECONDS);
         broadcastMessage(Protocol.S2C_PEERLESS_PREP_START);
-
-        if (peerlessTimer != null) peerlessTimer.cancel();
-        peerlessTimer = new Timer();
-        peerlessTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                synchronized (GameRoom.this) {
-                    if (!gameStarted) {
-                        this.cancel();
-                        return;
-                    }
-
-                    int time = peerlessSecondsRemaining.decrementAndGet();
-                    broadcastMessage(Protocol.S2C_PEERLESS_PREP_TIMER_UPDATE + ":" + time + ":PREP");
-
-                    if (time <= 0) {
-                        this.cancel();
-                        peerlessGamePhase = PeerlessPhase.COUNTDOWN;
-                        startPeerlessMainCountdown(PEERLESS_COUNTDOWN_SECONDS);
-                    }
-                }
-            }
-        }, 1000, 1000);
+        startPeerlessPhase(PeerlessPhase.PREP, PEERLESS_PREP_TIME_SECONDS);
     }
 
     private boolean allFirstBlocksPlaced() {
@@ -202,62 +246,69 @@ public class GameRoom implements Serializable {
     }
 
     private void startPeerlessMainCountdown(int seconds) {
-        peerlessGamePhase = PeerlessPhase.COUNTDOWN;
-        peerlessSecondsRemaining.set(seconds);
+        startPeerlessPhase(PeerlessPhase.COUNTDOWN, seconds);
+        // 카운트다운은 시작하자마자 첫 숫자를 보여 준다.
+        broadcastSplit(Capability.CLOCK, null, () -> peerlessTimerUpdate(PeerlessPhase.COUNTDOWN, seconds));
+    }
 
-        if (peerlessTimer != null) peerlessTimer.cancel();
-        peerlessTimer = new Timer();
-        peerlessTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                synchronized (GameRoom.this) {
-                    if (!gameStarted) {
-                        this.cancel();
-                        return;
-                    }
+    private void startPeerlessMainGameTimer() {
+        startPeerlessPhase(PeerlessPhase.MAIN, PEERLESS_MAIN_TIME_SECONDS);
+    }
 
-                    int time = peerlessSecondsRemaining.get();
-                    broadcastMessage(Protocol.S2C_PEERLESS_PREP_TIMER_UPDATE + ":" + time + ":COUNTDOWN");
-                    peerlessSecondsRemaining.decrementAndGet();
+    // 단계마다 마감 시각을 하나 잡고, 그 시각에 endPeerlessPhase 가 한 번 불린다.
+    private void startPeerlessPhase(PeerlessPhase phase, int seconds) {
+        stopClocks();
+        peerlessGamePhase = phase;
+        phaseDeadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long deadline = phaseDeadlineNanos;
+        broadcastSplit(Capability.CLOCK, () -> clockMessage(phase.name(), 0, deadline), null);
 
-                    if (time <= 0) {
-                        this.cancel();
-                        broadcastMessage(Protocol.S2C_PEERLESS_MAIN_START);
-                        peerlessGamePhase = PeerlessPhase.MAIN;
-                        startPeerlessMainGameTimer();
-                    }
-                }
+        clockTimeout = new RoomTimeout(deadline) {
+            @Override
+            void expire() {
+                endPeerlessPhase(phase);
+            }
+        };
+        clockTick = new RoomTick(displayPeriodSeconds()) {
+            @Override
+            void tick(boolean resync) {
+                int time = secondsLeft(deadline - System.nanoTime());
+                // 0 초는 endPeerlessPhase 가 단계를 넘기면서 보낸다.
+                if (time <= 0) return;
+                broadcastSplit(Capability.CLOCK, resync ? () -> clockMessage(phase.name(), 0, deadline) : null,
+                        () -> peerlessTimerUpdate(phase, time));
             }
-        }, 0, 1000);
+        }.start();
     }
 
-    private void startPeerlessMainGameTimer() {
-        peerlessGamePhase = PeerlessPhase.MAIN;
-        peerlessSecondsRemaining.set(PEERLESS_MAIN_TIME_SECONDS);
+    private void endPeerlessPhase(PeerlessPhase phase) {
+        if (!gameStarted || peerlessGamePhase != phase) return;
+        stopClocks();
+        broadcastSplit(Capability.CLOCK, null, () -> peerlessTimerUpdate(phase, 0));
 
-        if (peerlessTimer != null) peerlessTimer.cancel();
-        peerlessTimer = new Timer();
-        peerlessTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                synchronized (GameRoom.this) {
-                    if (!gameStarted) {
-                        this.cancel();
-                        return;
-                    }
-                    int time = peerlessSecondsRemaining.decrementAndGet();
-                    broadcastMessage(Protocol.S2C_PEERLESS_TIMER_UPDATE + ":" + time);
+        switch (phase) {
+            case PREP:
+                startPeerlessMainCountdown(PEERLESS_COUNTDOWN_SECONDS);
+                break;
+            case COUNTDOWN:
+                broadcastMessage(Protocol.S2C_PEERLESS_MAIN_START);
+                startPeerlessMainGameTimer();
+                break;
+            case MAIN:
+                handleGameOver(false);
+                break;
+            default:
+                break;
+        }
+    }
 
-                    if (time <= 0) {
-                        this.cancel();
-                        handleGameOver(false);
-                    }
-                }
-            }
-        }, 1000, 1000);
+    private static String peerlessTimerUpdate(PeerlessPhase phase, int seconds) {
+        if (phase == PeerlessPhase.MAIN) return Protocol.S2C_PEERLESS_TIMER_UPDATE + ":" + seconds;
+        return Protocol.S2C_PEERLESS_PREP_TIMER_UPDATE + ":" + seconds + ":" + phase.name();
     }
 
-    public synchronized void kickPlayer(ClientHandler kicker, String targetUsername) {
+    public void kickPlayer(ClientHandler kicker, String targetUsername) {
+        if (redirect(() -> kickPlayer(kicker, targetUsername))) return;
         if (!kicker.equals(host)) {
             kicker.sendMessage(Protocol.S2C_SYSTEM_MSG + ":방장만 강퇴할 수 있습니다.");
             return;
@@ -282,6 +333,7 @@ public class GameRoom implements Serializable {
         if (target != null) {
             target.sendMessage(Protocol.S2C_KICKED);
             removePlayer(target);
+            server.publishRoomChanged(this);
             server.addClientToLobby(target);
             broadcastMessage(Protocol.S2C_SYSTEM_MSG + ":" + targetUsername + "님이 강퇴당했습니다.");
         } else {
@@ -289,15 +341,16 @@ public class GameRoom implements Serializable {
         }
     }
 
-    public synchronized void handlePlaceBlock(ClientHandler player, String data) {
+    public void handlePlaceBlock(ClientHandler player, PlaceCommand command) {
+        if (redirect(() -> handlePlaceBlock(player, command))) return;
         if (gameMode == GameMode.CLASSIC) {
-            handleClassicPlaceBlock(player, data);
+            handleClassicPlaceBlock(player, command);
         } else {
-            handlePeerlessPlaceBlock(player, data);
+            handlePeerlessPlaceBlock(player, command);
         }
     }
 
-    private synchronized void handleClassicPlaceBlock(ClientHandler player, String data) {
+    private void handleClassicPlaceBlock(ClientHandler player, PlaceCommand command) {
         ClientHandler turnPlayer = getPlayerByColor(currentTurnColor);
 
         if (turnPlayer == null || !turnPlayer.equals(player)) {
@@ -305,18 +358,24 @@ public class GameRoom implements Serializable {
             return;
         }
 
-        String[] parts = data.split(":");
-        // Expected format: ID:x:y:rotation:flipped
-        if (parts.length < 5) {
+        if (command == null) {
             player.sendMessage(Protocol.S2C_INVALID_MOVE + ":잘못된 요청입니다.");
             return;
         }
 
-        String pieceId = parts[0];
-        int x = Integer.parseInt(parts[1]);
-        int y = Integer.parseInt(parts[2]);
-        int rotation = Integer.parseInt(parts[3]);
-        int flipped = Integer.parseInt(parts[4]);
+        // 명령을 읽은 시각. 편지함과 메일박스에서 기다린 시간은 플레이어 몫이 아니다.
+        long arrivedNanos = command.receivedNanos;
+        // 마감 타임아웃은 휠 간격과 메일박스 대기만큼 늦게 돌 수 있다. 그 사이에 도착한 수는 받지 않고 시간 초과로 처리한다.
+        if (turnDeadlineNanos != 0 && arrivedNanos - lagCredit(player) > turnDeadlineNanos) {
+            player.sendMessage(Protocol.S2C_INVALID_MOVE + ":시간이 초과되었습니다.");
+            handleTurnTimeout();
+            return;
+        }
+
+        String pieceId = command.pieceId;
+        int x = command.x;
+        int y = command.y;
+        int rotation = command.rotation;
 
         BlokusPiece pieceToPlace = null;
         List<BlokusPiece> hand = playerHands.get(player);
@@ -331,7 +390,7 @@ public class GameRoom implements Serializable {
             return;
         }
 
-        if (flipped == 1) pieceToPlace.flip();
+        if (command.flipped) pieceToPlace.flip();
         for (int i = 0; i < rotation; i++) pieceToPlace.rotate();
 
         if (!isValidMove(pieceToPlace, x, y, currentTurnColor)) {
@@ -339,8 +398,9 @@ public class GameRoom implements Serializable {
             return;
         }
 
-        placePieceOnBoard(pieceToPlace, x, y);
+        String changedCells = placePieceOnBoard(pieceToPlace, x, y);
         isFirstMoveForColor.put(currentTurnColor, false);
+        broadcastBoardDelta(currentTurnColor, changedCells);
 
         BlokusPiece originalPiece = null;
         for (BlokusPiece piece : hand) {
@@ -350,26 +410,26 @@ public class GameRoom implements Serializable {
             }
         }
         hand.remove(originalPiece);
-        sendHandUpdate(player);
+        sendHandRemoval(player, pieceId, currentTurnColor);
 
         // passCount = 0; // Removed
+        // 읽은 시각으로 정산하고, 오는 데 걸린 시간도 뺀다.
+        chargeTurn(arrivedNanos - lagCredit(player));
         advanceTurn();
     }
 
-    private synchronized void handlePeerlessPlaceBlock(ClientHandler player, String data) {
-        String[] parts = data.split(":");
-        // Expected format: ID:x:y:rotation:flipped:color
-        if (parts.length < 6) {
+    private void handlePeerlessPlaceBlock(ClientHandler player, PlaceCommand command) {
+        // 피어리스 모드는 색을 반드시 지정해야 한다.
+        if (command == null || command.color == 0) {
             player.sendMessage(Protocol.S2C_PEERLESS_PLACE_FAIL + ":잘못된 요청입니다.");
             return;
         }
 
-        String pieceId = parts[0];
-        int x = Integer.parseInt(parts[1]);
-        int y = Integer.parseInt(parts[2]);
-        int rotation = Integer.parseInt(parts[3]);
-        int flipped = Integer.parseInt(parts[4]);
-        int colorToPlace = Integer.parseInt(parts[5]);
+        String pieceId = command.pieceId;
+        int x = command.x;
+        int y = command.y;
+        int rotation = command.rotation;
+        int colorToPlace = command.color;
 
         if (peerlessGamePhase == PeerlessPhase.PREP) {
             if (!isFirstMoveForColor.get(colorToPlace)) {
@@ -416,7 +476,7 @@ public class GameRoom implements Serializable {
             return;
         }
 
-        if (flipped == 1) pieceToPlace.flip();
+        if (command.flipped) pieceToPlace.flip();
         for (int i = 0; i < rotation; i++) pieceToPlace.rotate();
 
         if (!isValidMove(pieceToPlace, x, y, colorToPlace)) {
@@ -424,7 +484,7 @@ public class GameRoom implements Serializable {
             return;
         }
 
-        placePieceOnBoard(pieceToPlace, x, y);
+        String changedCells = placePieceOnBoard(pieceToPlace, x, y);
         boolean wasFirstMove = isFirstMoveForColor.get(colorToPlace);
         isFirstMoveForColor.put(colorToPlace, false);
 
@@ -438,11 +498,9 @@ public class GameRoom implements Serializable {
         hand.remove(originalPiece);
 
         player.sendMessage(Protocol.S2C_PEERLESS_PLACE_SUCCESS + ":" + pieceId + ":" + colorToPlace);
-        broadcastPeerlessBoardState();
+        broadcastBoardDelta(colorToPlace, changedCells);
 
         if (wasFirstMove && peerlessGamePhase == PeerlessPhase.PREP && allFirstBlocksPlaced()) {
-            if (peerlessTimer != null) peerlessTimer.cancel();
-            peerlessGamePhase = PeerlessPhase.COUNTDOWN;
             startPeerlessMainCountdown(PEERLESS_COUNTDOWN_SECONDS);
         }
     }
@@ -461,42 +519,37 @@ public class GameRoom implements Serializable {
 
     // handlePassTurn 삭제됨
 
-    public synchronized void handleResignColor(ClientHandler player, String data) {
+    public void handleResignColor(ClientHandler player, int colorToResign) {
+        if (redirect(() -> handleResignColor(player, colorToResign))) return;
         if (gameMode == GameMode.PEERLESS) return;
         if (!gameStarted) return;
 
-        try {
-            int colorToResign = Integer.parseInt(data);
-
-            if (colorToResign != currentTurnColor) {
-                player.sendMessage(Protocol.S2C_INVALID_MOVE + ":현재 턴의 색상만 점수를 확정할 수 있습니다.");
-                return;
-            }
-
-            ClientHandler turnPlayer = getPlayerByColor(currentTurnColor);
-            if (turnPlayer == null || !turnPlayer.equals(player)) {
-                player.sendMessage(Protocol.S2C_INVALID_MOVE + ":당신의 턴이 아닙니다.");
-                return;
-            }
+        if (colorToResign != currentTurnColor) {
+            player.sendMessage(Protocol.S2C_INVALID_MOVE + ":현재 턴의 색상만 점수를 확정할 수 있습니다.");
+            return;
+        }
 
-            if (!isTimedOut.get(colorToResign)) {
-                isTimedOut.put(colorToResign, true);
-                broadcastMessage(Protocol.S2C_SYSTEM_MSG + ":" + getColorName(colorToResign) + " 색의 점수가 확정되었습니다.");
-            }
+        ClientHandler turnPlayer = getPlayerByColor(currentTurnColor);
+        if (turnPlayer == null || !turnPlayer.equals(player)) {
+            player.sendMessage(Protocol.S2C_INVALID_MOVE + ":당신의 턴이 아닙니다.");
+            return;
+        }
 
-            // handlePassTurn(null) 대신 advanceTurn 호출
-            if (checkGameOver()) {
-                handleGameOver(false);
-            } else {
-                advanceTurn();
-            }
+        if (!isTimedOut.get(colorToResign)) {
+            isTimedOut.put(colorToResign, true);
+            broadcastMessage(Protocol.S2C_SYSTEM_MSG + ":" + getColorName(colorToResign) + " 색의 점수가 확정되었습니다.");
+        }
 
-        } catch (NumberFormatException e) {
-            System.err.println("Invalid C2S_RESIGN_COLOR data: " + data);
+        // handlePassTurn(null) 대신 advanceTurn 호출
+        if (checkGameOver()) {
+            handleGameOver(false);
+        } else {
+            advanceTurn();
         }
     }
 
-    public synchronized void handlePeerlessResign(ClientHandler player) {
+    public void handlePeerlessResign(ClientHandler player) {
+        if (redirect(() -> handlePeerlessResign(player))) return;
         if (gameMode == GameMode.CLASSIC) return;
         if (!gameStarted) return;
 
@@ -515,7 +568,8 @@ public class GameRoom implements Serializable {
         }
     }
 
-    public synchronized void handleDisconnectOrResign(ClientHandler player, String reason) {
+    public void handleDisconnectOrResign(ClientHandler player, String reason) {
+        if (redirect(() -> handleDisconnectOrResign(player, reason))) return;
         if (!gameStarted) return;
 
         int[] colors = playerColors.get(player);
@@ -595,24 +649,27 @@ public class GameRoom implements Serializable {
         return isFirstMove ? startCornerMatch : cornerTouch;
     }
 
-    private void placePieceOnBoard(BlokusPiece piece, int x, int y) {
+    // 바뀐 칸 번호(y*20+x)를 쉼표로 이어 돌려준다.
+    private String placePieceOnBoard(BlokusPiece piece, int x, int y) {
         List<Point> pieceCoords = piece.getPoints();
         int color = piece.getColor();
+        StringBuilder changed = new StringBuilder();
         for (Point p : pieceCoords) {
             int boardX = x + p.x;
             int boardY = y + p.y;
             if (boardX >= 0 && boardX < 20 && boardY >= 0 && boardY < 20) {
                 board[boardY][boardX] = color;
+                if (changed.length() > 0) changed.append(',');
+                changed.append(boardY * 20 + boardX);
             }
         }
+        return changed.toString();
     }
 
-    private synchronized void advanceTurn() {
+    private void advanceTurn() {
         if (gameMode == GameMode.PEERLESS) return;
 
-        if (currentTimerTask != null) {
-            currentTimerTask.cancel();
-        }
+        chargeTurn(System.nanoTime());
 
         int attempts = 0;
         do {
@@ -638,59 +695,192 @@ public class GameRoom implements Serializable {
             return;
         }
 
-        int newTime = remainingTime.get(currentTurnColor) + CLASSIC_TIME_BONUS_SECONDS;
-        remainingTime.put(currentTurnColor, newTime);
+        remainingNanos.merge(currentTurnColor, TimeUnit.SECONDS.toNanos(CLASSIC_TIME_BONUS_SECONDS), Long::sum);
 
-        startTurnTimer();
+        startTurnClock();
 
         String colorName = getColorName(currentTurnColor);
         String playerName = getPlayerNameByColor(currentTurnColor);
         broadcastMessage(Protocol.S2C_SYSTEM_MSG + ":턴 변경 → " + colorName + " (" + playerName + ")");
         broadcastGameState();
-        broadcastTimeUpdate();
+        broadcastClock();
     }
 
-    private void startTurnTimer() {
-        currentTimerTask = new TimerTask() {
-            @Override
-            public void run() {
-                synchronized (GameRoom.this) {
-                    if (!gameStarted || gameMode == GameMode.PEERLESS) {
-                        this.cancel();
-                        return;
-                    }
+    // 화면 표시용 틱. 방마다 Timer 스레드를 두지 않고, 서버 공용 HashedWheelTimer 가 깨우면 방 메일박스에 작업으로 넣는다.
+    // 틱 동안 보낸 메시지는 메일박스의 WriteBatch 로 묶여 연결마다 한 번에 나간다.
+    private abstract class RoomTick implements Runnable {
+        private final int periodSeconds;
+        private final long periodNanos;
+        private int elapsedSeconds;
 
-                    int time = remainingTime.get(currentTurnColor) - 1;
-                    remainingTime.put(currentTurnColor, time);
+        private long nextNanos;
+        private boolean cancelled;
+        private HashedWheelTimer.Timeout timeout;
 
-                    if (time <= 0) {
-                        // 시간 초과 시 탈락 처리(isTimedOut=true) 제거
-                        // 단순히 턴만 넘어감
-                        broadcastMessage(Protocol.S2C_SYSTEM_MSG + ":" + getColorName(currentTurnColor) + " 님의 시간이 초과되어 턴이 넘어갑니다.");
-                        broadcastTimeUpdate();
+        RoomTick(int periodSeconds) {
+            this.periodSeconds = periodSeconds;
+            this.periodNanos = TimeUnit.SECONDS.toNanos(periodSeconds);
+        }
 
-                        // 시간 초과는 게임 종료 사유가 아니므로 checkGameOver() 호출 없이 바로 advanceTurn()
-                        advanceTurn();
-                        this.cancel();
-                    } else {
-                        broadcastTimeUpdate();
-                    }
-                }
+        // 다음 틱 시각을 시작 시각 기준으로 잡으므로 실행이 늦어져도 밀림이 쌓이지 않는다.
+        final RoomTick start() {
+            nextNanos = System.nanoTime() + periodNanos;
+            schedule();
+            return this;
+        }
+
+        private void schedule() {
+            long delay = Math.max(0, nextNanos - System.nanoTime());
+            timeout = server.timer().schedule(() -> mailbox.execute(this), delay, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public final void run() {
+            if (cancelled) return;
+            elapsedSeconds += periodSeconds;
+            tick(elapsedSeconds % CLOCK_RESYNC_SECONDS == 0);
+            if (!cancelled) {
+                nextNanos += periodNanos;
+                schedule();
+            }
+        }
+
+        // 예약된 다음 틱 하나만 취소하면 된다. 이미 메일박스에 들어간 틱은 cancelled 를 보고 그냥 돌아간다.
+        final void cancel() {
+            cancelled = true;
+            HashedWheelTimer.Timeout t = timeout;
+            if (t != null) t.cancel();
+        }
+
+        // resync 이면 CLOCK 기능 클라이언트에게 보정용 CLOCK 을 보낼 차례다.
+        abstract void tick(boolean resync);
+    }
+
+    // 마감 시각에 방 메일박스에서 expire() 를 한 번 부른다.
+    private abstract class RoomTimeout implements Runnable {
+        private boolean cancelled;
+        private final HashedWheelTimer.Timeout timeout;
+
+        RoomTimeout(long deadlineNanos) {
+            long delay = Math.max(0, deadlineNanos - System.nanoTime());
+            timeout = server.timer().schedule(() -> mailbox.execute(this), delay, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public final void run() {
+            if (cancelled) return;
+            cancelled = true;
+            expire();
+        }
+
+        final void cancel() {
+            cancelled = true;
+            timeout.cancel();
+        }
+
+        abstract void expire();
+    }
+
+    private void stopClocks() {
+        if (clockTick != null) clockTick.cancel();
+        if (clockTimeout != null) clockTimeout.cancel();
+    }
+
+    // 기존 클라이언트가 있으면 매초, 모두 CLOCK 기능이면 보정 주기마다만 깨어난다.
+    private int displayPeriodSeconds() {
+        for (ClientHandler p : players) {
+            if (!p.has(Capability.CLOCK)) return 1;
+        }
+        return CLOCK_RESYNC_SECONDS;
+    }
+
+    private void startTurnClock() {
+        turnStartNanos = System.nanoTime();
+        turnDeadlineNanos = turnStartNanos + remainingNanos.get(currentTurnColor);
+        // 마감 직전에 보낸 수가 지연 보정 안에 도착하면 받아 주도록 타임아웃은 보정만큼 늦게 건다.
+        clockTimeout = new RoomTimeout(turnDeadlineNanos + lagCredit(getPlayerByColor(currentTurnColor))) {
+            @Override
+            void expire() {
+                handleTurnTimeout();
             }
         };
-        if (gameTimer == null) gameTimer = new Timer();
-        gameTimer.scheduleAtFixedRate(currentTimerTask, 1000, 1000);
+        clockTick = new RoomTick(displayPeriodSeconds()) {
+            @Override
+            void tick(boolean resync) {
+                if (resync) {
+                    broadcastClock();
+                } else {
+                    broadcastTimeUpdate();
+                }
+            }
+        }.start();
+    }
+
+    // 지금 턴의 시계를 멈추고 now 까지 쓴 시간을 한 번에 깎는다. 이미 멈췄으면 아무것도 하지 않는다.
+    // 보정으로 now 가 턴 시작보다 앞서도 턴을 시작할 때보다 시간이 늘지는 않는다.
+    private void chargeTurn(long now) {
+        if (turnDeadlineNanos == 0) return;
+        remainingNanos.put(currentTurnColor, Math.max(0, turnDeadlineNanos - Math.max(now, turnStartNanos)));
+        turnDeadlineNanos = 0;
+        stopClocks();
+    }
+
+    private void handleTurnTimeout() {
+        if (!gameStarted || turnDeadlineNanos == 0) return;
+        chargeTurn(turnDeadlineNanos);
+
+        // 시간 초과 시 탈락 처리(isTimedOut=true) 제거
+        // 단순히 턴만 넘어감
+        broadcastMessage(Protocol.S2C_SYSTEM_MSG + ":" + getColorName(currentTurnColor) + " 님의 시간이 초과되어 턴이 넘어갑니다.");
+        broadcastTimeUpdate();
+
+        // 시간 초과는 게임 종료 사유가 아니므로 checkGameOver() 호출 없이 바로 advanceTurn()
+        advanceTurn();
+    }
+
+    private static long lagCredit(ClientHandler player) {
+        return player == null ? 0 : Math.min(player.getMinRttNanos() / 2, LAG_CREDIT_MAX_NANOS);
+    }
+
+    // 남은 초는 올림으로 센다. 클라이언트도 마감 시각에서 같은 식으로 센다.
+    private static int secondsLeft(long nanos) {
+        return nanos <= 0 ? 0 : (int) ((nanos + 999_999_999L) / 1_000_000_000L);
+    }
+
+    private int remainingSeconds(int color) {
+        if (color == currentTurnColor && turnDeadlineNanos != 0) {
+            return secondsLeft(turnDeadlineNanos - System.nanoTime());
+        }
+        return secondsLeft(remainingNanos.get(color));
     }
 
+    // 매초 TIME_UPDATE. CLOCK 기능 클라이언트는 받지 않고 직접 센다.
     private void broadcastTimeUpdate() {
-        String legacy = String.format("%s:%d,%d,%d,%d",
+        broadcastSplit(Capability.CLOCK, null, this::timeUpdateMessage);
+    }
+
+    // 턴이 바뀔 때와 보정 주기마다. CLOCK 기능 클라이언트에게는 지금 턴의 남은 시간과 마감 시각을 보낸다.
+    private void broadcastClock() {
+        int color = currentTurnColor;
+        long deadline = turnDeadlineNanos;
+        broadcastSplit(Capability.CLOCK, () -> clockMessage("TURN", color, deadline) + ":" + remainingSeconds(1) + ","
+                        + remainingSeconds(2) + "," + remainingSeconds(3) + "," + remainingSeconds(4),
+                this::timeUpdateMessage);
+    }
+
+    private String timeUpdateMessage() {
+        return String.format("%s:%d,%d,%d,%d",
                 Protocol.S2C_TIME_UPDATE,
-                remainingTime.get(1),
-                remainingTime.get(2),
-                remainingTime.get(3),
-                remainingTime.get(4));
+                remainingSeconds(1),
+                remainingSeconds(2),
+                remainingSeconds(3),
+                remainingSeconds(4));
+    }
 
-        broadcastMessage(legacy);
+    // CLOCK:단계:색:남은ms:마감시각 (마감시각은 서버 단조 시계 기준 ms)
+    private static String clockMessage(String phase, int color, long deadlineNanos) {
+        long remainingMs = Math.max(0, deadlineNanos - System.nanoTime()) / 1_000_000;
+        return Protocol.S2C_CLOCK + ":" + phase + ":" + color + ":" + remainingMs + ":" + deadlineNanos / 1_000_000;
     }
 
     private boolean checkGameOver() {
@@ -734,9 +924,7 @@ public class GameRoom implements Serializable {
         if (!gameStarted) return;
         gameStarted = false;
 
-        if (currentTimerTask != null) currentTimerTask.cancel();
-        if (gameTimer != null) gameTimer.cancel();
-        if (peerlessTimer != null) peerlessTimer.cancel();
+        stopClocks();
 
         String resultMessage;
         Map<String, Double> scoreChanges = new HashMap<>();
@@ -827,9 +1015,27 @@ public class GameRoom implements Serializable {
     }
 
     public void broadcastMessage(String message) {
-        synchronized (players) {
-            for (ClientHandler client : players) {
-                client.sendMessage(message);
+        // 인코딩은 수신자 수와 관계없이 형식별로 한 번만 일어난다.
+        OutboundMessage shared = new OutboundMessage(message);
+        for (ClientHandler client : players) {
+            client.sendMessage(shared);
+        }
+    }
+
+    // capability 를 켠 클라이언트와 그렇지 않은 클라이언트에게 다른 메시지를 보낸다.
+    // 각 메시지는 받을 사람이 있을 때만 한 번 만든다. null 이면 그쪽에는 보내지 않는다.
+    private void broadcastSplit(Capability capability, Supplier<String> current, Supplier<String> legacy) {
+        OutboundMessage currentMessage = null;
+        OutboundMessage legacyMessage = null;
+        for (ClientHandler client : players) {
+            if (client.has(capability)) {
+                if (current == null) continue;
+                if (currentMessage == null) currentMessage = new OutboundMessage(current.get());
+                client.sendMessage(currentMessage);
+            } else {
+                if (legacy == null) continue;
+                if (legacyMessage == null) legacyMessage = new OutboundMessage(legacy.get());
+                client.sendMessage(legacyMessage);
             }
         }
     }
@@ -838,11 +1044,9 @@ public class GameRoom implements Serializable {
         StringBuilder roomUpdateStr = new StringBuilder(Protocol.S2C_ROOM_UPDATE);
         if (players.size() > 0) roomUpdateStr.append(":");
 
-        synchronized (players) {
-            for (ClientHandler p : players) {
-                String role = p.equals(host) ? "host" : "guest";
-                roomUpdateStr.append("[").append(p.getUsername()).append(",").append(role).append("];");
-            }
+        for (ClientHandler p : players) {
+            String role = p.equals(host) ? "host" : "guest";
+            roomUpdateStr.append("[").append(p.getUsername()).append(",").append(role).append("];");
         }
         if (roomUpdateStr.length() > 0 && roomUpdateStr.charAt(roomUpdateStr.length() - 1) == ';') {
             roomUpdateStr.deleteCharAt(roomUpdateStr.length() - 1);
@@ -866,35 +1070,80 @@ public class GameRoom implements Serializable {
         return "Unknown";
     }
 
+    // 턴이 바뀔 때. 보드는 이미 BOARD_DELTA 로 보냈으므로 델타 클라이언트에게는 턴 정보만 보낸다.
     private void broadcastGameState() {
         if (gameMode == GameMode.PEERLESS) return;
 
-        StringBuilder boardData = new StringBuilder();
-        for (int r = 0; r < 20; r++) {
-            for (int c = 0; c < 20; c++) {
-                boardData.append(board[r][c]).append(",");
-            }
-        }
-        boardData.deleteCharAt(boardData.length() - 1);
-
         String currentPlayerName = getPlayerNameByColor(currentTurnColor);
         String colorName = getColorName(currentTurnColor);
-        currentPlayerName += " (" + colorName + ")";
+        String turn = currentPlayerName + " (" + colorName + ")" + ":" + currentTurnColor;
 
-        broadcastMessage(Protocol.S2C_GAME_STATE + ":" + boardData + ":" + currentPlayerName + ":" + currentTurnColor);
+        broadcastSplit(Capability.DELTA, () -> Protocol.S2C_TURN_UPDATE + ":" + turn,
+                () -> Protocol.S2C_GAME_STATE + ":" + boardCsv() + ":" + turn);
     }
 
-    private void broadcastPeerlessBoardState() {
-        if (gameMode == GameMode.CLASSIC) return;
+    // 방금 놓인 칸들만 보낸다. 기존 클라이언트는 피어리스 모드에서만 보드 전체를 받고, 클래식 모드에서는 뒤이은 GAME_STATE 로 받는다.
+    private void broadcastBoardDelta(int color, String changedCells) {
+        boardSeq++;
+        String delta = Protocol.S2C_BOARD_DELTA + ":" + boardSeq + ":" + color + ":" + changedCells;
+        Supplier<String> legacy = gameMode == GameMode.PEERLESS
+                ? () -> Protocol.S2C_PEERLESS_BOARD_UPDATE + ":" + boardCsv()
+                : null;
+        broadcastSplit(Capability.DELTA, () -> delta, legacy);
+    }
+
+    // 게임 시작, RESYNC 요청 시 한 명에게 보드 전체를 보낸다.
+    public void sendBoardSnapshot(ClientHandler player) {
+        if (redirect(() -> sendBoardSnapshot(player))) return;
+        if (!gameStarted || !player.has(Capability.DELTA)) return;
+        if (player.has(Capability.BINARY)) {
+            player.sendMessage(OutboundMessage.boardSnapshot(boardSeq, board));
+        } else {
+            player.sendMessage(Protocol.S2C_BOARD_SNAPSHOT + ":" + boardSeq + ":" + boardCsv());
+        }
+    }
 
-        StringBuilder boardData = new StringBuilder();
+    private String boardCsv() {
+        StringBuilder boardData = new StringBuilder(800);
         for (int r = 0; r < 20; r++) {
             for (int c = 0; c < 20; c++) {
                 boardData.append(board[r][c]).append(",");
             }
         }
         boardData.deleteCharAt(boardData.length() - 1);
-        broadcastMessage(Protocol.S2C_PEERLESS_BOARD_UPDATE + ":" + boardData);
+        return boardData.toString();
+    }
+
+    // 게임 시작 시 한 번. DELTA 클라이언트는 색별 비트마스크로 받는다.
+    // HAND_INIT:색=16진수마스크,색=16진수마스크 (비트 i = BlokusPiece.ALL_PIECE_IDS[i] 를 가지고 있음)
+    private void sendHandInit(ClientHandler player) {
+        if (!player.has(Capability.DELTA)) {
+            sendHandUpdate(player);
+            return;
+        }
+        List<BlokusPiece> hand = playerHands.get(player);
+        int[] colors = playerColors.get(player);
+        if (hand == null || colors == null) return;
+
+        int[] masks = new int[5];
+        for (BlokusPiece piece : hand) {
+            int index = BlokusPiece.indexOf(piece.getId());
+            if (index >= 0) masks[piece.getColor()] |= 1 << index;
+        }
+        StringBuilder handData = new StringBuilder(Protocol.S2C_HAND_INIT).append(':');
+        for (int i = 0; i < colors.length; i++) {
+            if (i > 0) handData.append(',');
+            handData.append(colors[i]).append('=').append(Integer.toHexString(masks[colors[i]]));
+        }
+        player.sendMessage(handData.toString());
+    }
+
+    private void sendHandRemoval(ClientHandler player, String pieceId, int color) {
+        if (player.has(Capability.DELTA)) {
+            player.sendMessage(Protocol.S2C_HAND_REMOVE + ":" + pieceId + "/" + color);
+        } else {
+            sendHandUpdate(player);
+        }
     }
 
     private void sendHandUpdate(ClientHandler player) {
@@ -12,6 +12,7 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.io.IOException;
 import java.util.*;
 import java.util.List;
 import java.util.Timer;
@@ -27,6 +28,8 @@ public class GameScreen extends JPanel {
     private final Color DARK_YELLOW = new Color(204, 153, 0);
 
     private int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+    // 마지막으로 적용한 BOARD_SNAPSHOT/BOARD_DELTA 의 seq. 스냅샷을 받기 전이거나 RESYNC 를 기다리는 중이면 -1
+    private int boardSeq = -1;
     private List<BlokusPiece> myHand = new ArrayList<>();
     private Map<String, PiecePreviewPanel> handPanelCache = new HashMap<>();
 
@@ -64,12 +67,21 @@ public class GameScreen extends JPanel {
     private JButton resignButton;
 
     private JLabel scoreLabel;
+    private JLabel latencyLabel;
 
     private int[] remainingTimes = {300, 300, 300, 300};
 
     private Timer totalGameTimer;
     private int totalSecondsElapsed = 0;
 
+    // CLOCK 메시지로 받은 시계. 서버가 알려 준 남은 시간을 로컬 nanoTime 마감 시각으로 바꿔 두고 직접 센다.
+    private static final long CLOCK_TOLERANCE_NANOS = 300_000_000L;
+    private Timer clockTimer;
+    private String clockPhase;
+    private int clockColor;
+    private long clockDeadlineNanos;
+    private int clockShownSeconds = -1;
+
     private JLayeredPane chatPanel;
     private JPanel chatContentPanel;
     private JButton chatFoldButton;
@@ -183,6 +195,12 @@ public class GameScreen extends JPanel {
         scoreLabel.setHorizontalAlignment(SwingConstants.CENTER);
         southTopPanel.add(scoreLabel, BorderLayout.CENTER);
 
+        // 서버가 잰 왕복 시간. RTT 기능을 모르는 서버면 계속 비어 있다.
+        latencyLabel = new JLabel(" ");
+        latencyLabel.setFont(new Font("맑은 고딕", Font.PLAIN, 12));
+        latencyLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 10));
+        southTopPanel.add(latencyLabel, BorderLayout.EAST);
+
         southPanel.add(southTopPanel, BorderLayout.NORTH);
 
         handPanel = new JPanel(new WrapLayout(WrapLayout.LEFT, 5, 5));
@@ -558,6 +576,8 @@ public class GameScreen extends JPanel {
         inventoryDisplayColor = (myColors.length > 0) ? myColors[0] : 0;
 
         board = new int[BOARD_SIZE][BOARD_SIZE];
+        boardSeq = -1;
+        stopClock();
         myHand.clear();
         handPanelCache.clear();
         handPanel.removeAll();
@@ -603,6 +623,8 @@ public class GameScreen extends JPanel {
         inventoryDisplayColor = (myColors.length > 0) ? myColors[0] : 0;
 
         board = new int[BOARD_SIZE][BOARD_SIZE];
+        boardSeq = -1;
+        stopClock();
         myHand.clear();
         handPanelCache.clear();
         handPanel.removeAll();
@@ -634,6 +656,82 @@ public class GameScreen extends JPanel {
     public void setGameFinished(boolean finished) {
         this.isGameFinished = finished;
         if (totalGameTimer != null) totalGameTimer.cancel();
+        stopClock();
+    }
+
+    // CLOCK:단계:색:남은ms:마감시각[:색별 남은 초]
+    public void applyClock(String data) {
+        if (data == null) return;
+        String[] parts = data.split(":");
+        if (parts.length < 4) return;
+        String phase = parts[0];
+        int color = Integer.parseInt(parts[1]);
+        long deadline = System.nanoTime() + Long.parseLong(parts[2]) * 1_000_000L;
+
+        boolean samePhase = phase.equals(clockPhase) && color == clockColor;
+        // 보정 메시지의 네트워크 지연 차이로 숫자가 흔들리지 않도록 조금 어긋난 것은 그대로 둔다.
+        if (!samePhase || Math.abs(deadline - clockDeadlineNanos) > CLOCK_TOLERANCE_NANOS) {
+            clockDeadlineNanos = deadline;
+        }
+        if (!samePhase) {
+            // PREP/MAIN 은 시작 메시지의 안내 문구를 첫 1초 동안 그대로 둔다.
+            boolean keepStartText = phase.equals("PREP") || phase.equals("MAIN");
+            clockShownSeconds = keepStartText ? (int) (Long.parseLong(parts[2]) / 1000) : -1;
+        }
+        if (parts.length >= 5) {
+            String[] times = parts[4].split(",");
+            for (int i = 0; i < times.length && i < 4; i++) {
+                remainingTimes[i] = Integer.parseInt(times[i]);
+            }
+            clockShownSeconds = -1;
+            statusPanel.repaint();
+        }
+        clockPhase = phase;
+        clockColor = color;
+
+        if (clockTimer == null) {
+            clockTimer = new Timer(true);
+            clockTimer.scheduleAtFixedRate(new TimerTask() {
+                @Override
+                public void run() {
+                    SwingUtilities.invokeLater(() -> refreshClock());
+                }
+            }, 200, 200);
+        }
+        refreshClock();
+    }
+
+    private void refreshClock() {
+        if (clockPhase == null || isGameFinished) return;
+        long left = clockDeadlineNanos - System.nanoTime();
+        int seconds = left <= 0 ? 0 : (int) ((left + 999_999_999L) / 1_000_000_000L);
+        if (seconds == clockShownSeconds) return;
+        clockShownSeconds = seconds;
+
+        switch (clockPhase) {
+            case "TURN":
+                if (clockColor >= 1 && clockColor <= 4) {
+                    remainingTimes[clockColor - 1] = seconds;
+                    statusPanel.repaint();
+                }
+                break;
+            case "PREP":
+                setPeerlessTimer("준비 시간: " + seconds + "초", Color.CYAN);
+                break;
+            case "COUNTDOWN":
+                setPeerlessTimer("게임 시작 " + seconds + "초 전!", Color.ORANGE);
+                break;
+            case "MAIN":
+                setPeerlessTimer("남은 시간: " + formatTime(seconds), Color.WHITE);
+                break;
+        }
+    }
+
+    private void stopClock() {
+        if (clockTimer != null) clockTimer.cancel();
+        clockTimer = null;
+        clockPhase = null;
+        clockShownSeconds = -1;
     }
 
 
@@ -680,11 +778,7 @@ public class GameScreen extends JPanel {
         String[] parts = data.split(":");
         if (parts.length < 3) return;
 
-        int oldTurnColor = this.currentTurnColor;
-
         String boardData = parts[0];
-        int newTurnColor = Integer.parseInt(parts[2]);
-
         String[] cells = boardData.split(",");
         for (int r = 0; r < BOARD_SIZE; r++) {
             for (int c = 0; c < BOARD_SIZE; c++) {
@@ -692,6 +786,64 @@ public class GameScreen extends JPanel {
             }
         }
 
+        applyTurn(Integer.parseInt(parts[2]));
+    }
+
+    // TURN_UPDATE:이름 (색):color
+    public void updateTurn(String data) {
+        if (isPeerlessMode) return;
+        if (data == null) return;
+        int colon = data.lastIndexOf(':');
+        if (colon < 0) return;
+        applyTurn(Integer.parseInt(data.substring(colon + 1)));
+    }
+
+    // OP_BOARD 프레임 본문을 보드에 바로 푼다. 데이터가 깨졌으면 true 를 돌려주며, 호출한 쪽은 RESYNC 를 보낸다.
+    public boolean applyBoardSnapshot(byte[] body) {
+        try {
+            boardSeq = FrameCodec.readBoard(body, board);
+        } catch (IOException e) {
+            boardSeq = -1;
+            return true;
+        } finally {
+            boardPanel.repaint();
+        }
+        return false;
+    }
+
+    // BOARD_DELTA:seq:color:칸번호,... 를 보드에 바로 적용한다.
+    // 중간 seq 가 빠졌으면 적용하지 않고 true 를 돌려주며, 호출한 쪽은 RESYNC 를 보낸다.
+    public boolean applyBoardDelta(String data) {
+        if (data == null) return false;
+        int first = data.indexOf(':');
+        int second = data.indexOf(':', first + 1);
+        if (first < 0 || second < 0) return false;
+        int seq = Integer.parseInt(data.substring(0, first));
+
+        if (boardSeq < 0) return false; // 스냅샷(또는 RESYNC 응답)을 기다리는 중
+        if (seq <= boardSeq) return false; // 이미 스냅샷에 반영된 델타
+        if (seq != boardSeq + 1) {
+            boardSeq = -1;
+            return true;
+        }
+
+        int color = Integer.parseInt(data.substring(first + 1, second));
+        int cell = 0;
+        for (int i = second + 1; i <= data.length(); i++) {
+            if (i == data.length() || data.charAt(i) == ',') {
+                board[cell / BOARD_SIZE][cell % BOARD_SIZE] = color;
+                cell = 0;
+            } else {
+                cell = cell * 10 + (data.charAt(i) - '0');
+            }
+        }
+        boardSeq = seq;
+        boardPanel.repaint();
+        return false;
+    }
+
+    private void applyTurn(int newTurnColor) {
+        int oldTurnColor = this.currentTurnColor;
         this.currentTurnColor = newTurnColor;
 
         statusPanel.repaint();
@@ -790,6 +942,26 @@ public class GameScreen extends JPanel {
         updateHandPanelUI();
     }
 
+    // HAND_INIT:색=16진수마스크,... 비트 i 가 BlokusPiece.ALL_PIECE_IDS[i]
+    public void initHand(String data) {
+        myHand.clear();
+
+        if (data != null && !data.isEmpty()) {
+            for (String entry : data.split(",")) {
+                int eq = entry.indexOf('=');
+                if (eq < 0) continue;
+                int color = Integer.parseInt(entry.substring(0, eq));
+                int mask = Integer.parseInt(entry.substring(eq + 1), 16);
+                for (int i = 0; i < BlokusPiece.ALL_PIECE_IDS.length; i++) {
+                    if ((mask & (1 << i)) != 0) myHand.add(new BlokusPiece(BlokusPiece.ALL_PIECE_IDS[i], color));
+                }
+            }
+        }
+
+        calculateAndUpdateScore();
+        updateHandPanelUI();
+    }
+
     private String getColorNameForPlayer(int playerColor) {
         switch (playerColor) {
             case 1: return "빨강";
@@ -975,7 +1147,7 @@ public class GameScreen extends JPanel {
                         flippedInt,
                         selectedPiece.getColor()
                 );
-                client.sendMessage(message);
+                client.sendPlaceRequest(message);
             }
         } else {
             if (!isMyTurn()) {
@@ -992,7 +1164,7 @@ public class GameScreen extends JPanel {
                         currentRotation,
                         flippedInt
                 );
-                client.sendMessage(message);
+                client.sendPlaceRequest(message);
             }
         }
     }
@@ -1385,6 +1557,11 @@ public class GameScreen extends JPanel {
         return bestMatch;
     }
 
+    public void updateLatency(int rttMs) {
+        latencyLabel.setText("지연: " + rttMs + "ms");
+        latencyLabel.setForeground(rttMs < 100 ? new Color(0, 128, 0) : rttMs < 250 ? new Color(200, 120, 0) : Color.RED);
+    }
+
     public void setPeerlessTimer(String text, Color color) {
         if (!isPeerlessMode) return;
         centerLabel.setText(text);
@@ -1402,7 +1579,17 @@ public class GameScreen extends JPanel {
         if (pieceToRemove != null) {
             myHand.remove(pieceToRemove);
             calculateAndUpdateScore();
-            updateHandPanelUI();
+
+            // 손패 전체를 다시 만들지 않고 해당 조각의 미리보기만 뺀다.
+            PiecePreviewPanel pp = handPanelCache.remove(pieceId + "/" + color);
+            if (pp != null && pp.getParent() == handPanel) {
+                handPanel.remove(pp);
+                handPanel.revalidate();
+                handPanel.repaint();
+            }
+            if (selectedPiece != null && selectedPiece.getId().equals(pieceId) && selectedPiece.getColor() == color) {
+                deselectPiece();
+            }
         }
     }
 
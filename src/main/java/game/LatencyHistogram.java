@@ -0,0 +1,61 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// 왕복 시간 표본의 구간별 개수. 어느 스레드에서나 기록할 수 있고, report() 할 때마다 0 으로 돌아간다.
+final class LatencyHistogram {
+    // 구간 상한(ms). 마지막 구간은 그 이상 전부
+    private static final int[] BOUNDS_MS = {25, 50, 100, 200, 400};
+
+    private final LongAdder[] counts = new LongAdder[BOUNDS_MS.length + 1];
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) counts[i] = new LongAdder();
+    }
+
+    void record(long nanos) {
+        long ms = nanos / 1_000_000;
+        int i = 0;
+        while (i < BOUNDS_MS.length && ms >= BOUNDS_MS[i]) i++;
+        counts[i].increment();
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // "<25ms 0, <50ms 3, ... / p50 <50ms, p95 <200ms, 최대 183ms". 구간 중 표본이 없었으면 null
+    String report() {
+        long[] c = new long[counts.length];
+        long total = 0;
+        for (int i = 0; i < c.length; i++) {
+            c[i] = counts[i].sumThenReset();
+            total += c[i];
+        }
+        long max = maxNanos.getAndSet(0);
+        if (total == 0) return null;
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < c.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(label(i)).append(' ').append(c[i]);
+        }
+        return sb.append(" / p50 ").append(label(bucketAt(c, total, 0.50)))
+                .append(", p95 ").append(label(bucketAt(c, total, 0.95)))
+                .append(", 최대 ").append(max / 1_000_000).append("ms").toString();
+    }
+
+    private static String label(int bucket) {
+        return bucket < BOUNDS_MS.length ? "<" + BOUNDS_MS[bucket] + "ms" : BOUNDS_MS[BOUNDS_MS.length - 1] + "ms+";
+    }
+
+    // 표본을 작은 쪽부터 셌을 때 q 번째가 들어 있는 구간
+    private static int bucketAt(long[] c, long total, double q) {
+        long rank = Math.max(1, (long) Math.ceil(total * q));
+        long seen = 0;
+        for (int i = 0; i < c.length; i++) {
+            seen += c[i];
+            if (seen >= rank) return i;
+        }
+        return c.length - 1;
+    }
+}
@@ -0,0 +1,196 @@
+package game;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// ObjectOutputStream.writeObject(String) 로 주고받는 스트림 중 String 만 해석/생성하는 코덱.
+// FrameCodec 을 모르는 기존 클라이언트용이며, String 이외의 객체는 거부한다.
+// 기존 클라이언트는 reset() 을 호출하지 않으므로 handles 는 세션 동안 계속 늘어난다.
+final class LegacyStreamCodec implements WireCodec {
+    static final short STREAM_MAGIC = (short) 0xaced;
+    static final short STREAM_VERSION = 5;
+
+    private static final byte TC_NULL = 0x70;
+    private static final byte TC_REFERENCE = 0x71;
+    private static final byte TC_STRING = 0x74;
+    private static final byte TC_RESET = 0x79;
+    private static final byte TC_LONGSTRING = 0x7C;
+    private static final int BASE_WIRE_HANDLE = 0x7e0000;
+
+    private final List<String> handles = new ArrayList<>();
+    private boolean headerRead = false;
+
+    @Override
+    public String decode(ByteBuffer in) throws IOException {
+        while (true) {
+            if (!headerRead) {
+                if (in.remaining() < 4) return null;
+                if (in.getShort() != STREAM_MAGIC || in.getShort() != STREAM_VERSION) {
+                    throw new StreamCorruptedException("잘못된 스트림 헤더");
+                }
+                headerRead = true;
+            }
+            if (!in.hasRemaining()) return null;
+
+            int start = in.position();
+            byte tc = in.get();
+            switch (tc) {
+                case TC_RESET:
+                    handles.clear();
+                    continue;
+                case TC_STRING:
+                    if (in.remaining() >= 2) {
+                        int length = in.getShort() & 0xFFFF;
+                        if (in.remaining() >= length) {
+                            String s = readUtf(in, length);
+                            handles.add(s);
+                            return s;
+                        }
+                    }
+                    break;
+                case TC_LONGSTRING:
+                    if (in.remaining() >= 8) {
+                        long length = in.getLong();
+                        if (length < 0 || length > MAX_MESSAGE_BYTES) {
+                            throw new StreamCorruptedException("메시지가 너무 큽니다: " + length);
+                        }
+                        if (in.remaining() >= length) {
+                            String s = readUtf(in, (int) length);
+                            handles.add(s);
+                            return s;
+                        }
+                    }
+                    break;
+                case TC_REFERENCE:
+                    if (in.remaining() >= 4) {
+                        int index = in.getInt() - BASE_WIRE_HANDLE;
+                        if (index < 0 || index >= handles.size()) {
+                            throw new StreamCorruptedException("잘못된 핸들: " + index);
+                        }
+                        return handles.get(index);
+                    }
+                    break;
+                case TC_NULL:
+                    throw new EOFException();
+                default:
+                    throw new StreamCorruptedException("지원하지 않는 타입 코드: " + tc);
+            }
+            in.position(start);
+            return null;
+        }
+    }
+
+    @Override
+    public ByteBuffer encode(String message) {
+        return encodeString(message);
+    }
+
+    // 기존 클라이언트는 이진 프레임을 모르므로 숫자를 쉼표로 이은 텍스트로 풀어 보낸다.
+    @Override
+    public ByteBuffer encodeBoard(int seq, byte[] packed) {
+        int[][] board = new int[FrameCodec.BOARD_SIZE][FrameCodec.BOARD_SIZE];
+        try {
+            FrameCodec.unpackBoard(packed, 0, packed.length, board);
+        } catch (StreamCorruptedException e) {
+            throw new IllegalArgumentException(e);
+        }
+        StringBuilder text = new StringBuilder(Protocol.S2C_BOARD_SNAPSHOT).append(':').append(seq).append(':');
+        for (int[] row : board) {
+            for (int cell : row) text.append(cell).append(',');
+        }
+        text.setLength(text.length() - 1);
+        return encodeString(text.toString());
+    }
+
+    @Override
+    public ByteBuffer preamble() {
+        return header();
+    }
+
+    static ByteBuffer header() {
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        buf.putShort(STREAM_MAGIC).putShort(STREAM_VERSION);
+        buf.flip();
+        return buf;
+    }
+
+    // 매 메시지 앞에 TC_RESET 을 붙여 상대 ObjectInputStream 의 핸들 테이블이 쌓이지 않게 한다.
+    static ByteBuffer encodeString(String s) {
+        int utfLength = utfLength(s);
+        boolean longString = utfLength > 0xFFFF;
+        ByteBuffer buf = ByteBuffer.allocate(2 + (longString ? 8 : 2) + utfLength);
+        buf.put(TC_RESET);
+        if (longString) {
+            buf.put(TC_LONGSTRING).putLong(utfLength);
+        } else {
+            buf.put(TC_STRING).putShort((short) utfLength);
+        }
+        writeUtf(buf, s);
+        buf.flip();
+        return buf;
+    }
+
+    private static int utfLength(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) length += 1;
+            else if (c > 0x07FF) length += 3;
+            else length += 2;
+        }
+        return length;
+    }
+
+    private static void writeUtf(ByteBuffer buf, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                buf.put((byte) c);
+            } else if (c > 0x07FF) {
+                buf.put((byte) (0xE0 | ((c >> 12) & 0x0F)));
+                buf.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buf.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                buf.put((byte) (0xC0 | ((c >> 6) & 0x1F)));
+                buf.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static String readUtf(ByteBuffer in, int length) throws UTFDataFormatException {
+        char[] chars = new char[length];
+        int count = 0;
+        int end = in.position() + length;
+        while (in.position() < end) {
+            int c = in.get() & 0xFF;
+            switch (c >> 4) {
+                case 0: case 1: case 2: case 3: case 4: case 5: case 6: case 7:
+                    chars[count++] = (char) c;
+                    break;
+                case 12: case 13: {
+                    if (in.position() + 1 > end) throw new UTFDataFormatException();
+                    int c2 = in.get();
+                    if ((c2 & 0xC0) != 0x80) throw new UTFDataFormatException();
+                    chars[count++] = (char) (((c & 0x1F) << 6) | (c2 & 0x3F));
+                    break;
+                }
+                case 14: {
+                    if (in.position() + 2 > end) throw new UTFDataFormatException();
+                    int c2 = in.get();
+                    int c3 = in.get();
+                    if ((c2 & 0xC0) != 0x80 || (c3 & 0xC0) != 0x80) throw new UTFDataFormatException();
+                    chars[count++] = (char) (((c & 0x0F) << 12) | ((c2 & 0x3F) << 6) | (c3 & 0x3F));
+                    break;
+                }
+                default:
+                    throw new UTFDataFormatException();
+            }
+        }
+        return new String(chars, 0, count);
+    }
+}
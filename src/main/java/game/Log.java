@@ -0,0 +1,271 @@
+package game;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+// 서버 로그. 호출한 스레드는 링 버퍼에 넣기만 하고, 콘솔 출력은 blokus-log 스레드 하나가 모아서 한다.
+// 버퍼가 가득 차면 기다리지 않고 버린다(버린 개수는 다음 줄에 함께 출력).
+//
+//   -Dblokus.log.level=TRACE|DEBUG|INFO|WARN|ERROR   (기본 INFO)
+//   -Dblokus.log.sample=N      TRACE 를 켰을 때 프로토콜 메시지 N개 중 하나만 남긴다. (기본 1)
+//   -Dblokus.trace.users=a,b   레벨과 관계없이 이 유저들의 프로토콜 메시지를 모두 남긴다.
+//   -Dblokus.trace.rooms=1,2   레벨과 관계없이 이 방 ID 들의 프로토콜 메시지를 모두 남긴다.
+// 속성은 시작 값이다. 서버를 다시 띄우지 않고 JMX(game:type=Log, LogControlMBean)로 바꿀 수 있다.
+final class Log {
+    enum Level { TRACE, DEBUG, INFO, WARN, ERROR }
+
+    private static final class Entry {
+        final LocalTime time = LocalTime.now();
+        final Level level;
+        final String message;
+        final Throwable error;
+
+        Entry(Level level, String message, Throwable error) {
+            this.level = level;
+            this.message = message;
+            this.error = error;
+        }
+    }
+
+    private static final int CAPACITY = 1 << 13;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    // 로그를 남길 때마다 읽으므로 volatile 로 두고, 추적 목록은 바꿀 때마다 새 Set 으로 갈아 끼운다.
+    private static volatile Level level = Level.valueOf(System.getProperty("blokus.log.level", "INFO").toUpperCase());
+    private static volatile int sample = Math.max(1, Integer.getInteger("blokus.log.sample", 1));
+    private static volatile Set<String> traceUsers = csv(System.getProperty("blokus.trace.users", ""));
+    private static volatile Set<String> traceRooms = csv(System.getProperty("blokus.trace.rooms", ""));
+
+    private static final AtomicReferenceArray<Entry> ring = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong tail = new AtomicLong();
+    private static volatile long head;
+    private static final LongAdder dropped = new LongAdder();
+
+    private static volatile PrintStream out = System.out;
+    private static final Thread writer;
+
+    static {
+        writer = new Thread(Log::drainLoop, "blokus-log");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::drain));
+    }
+
+    private Log() {
+    }
+
+    // main 에서 UTF-8 PrintStream 을 만든 뒤 한 번 부른다.
+    static void setOutput(PrintStream stream) {
+        out = stream;
+    }
+
+    // main 에서 한 번 부른다. 등록에 실패해도 서버는 시작 값으로 그대로 돈다.
+    static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(new Control(), LogControlMBean.class), new ObjectName("game:type=Log"));
+        } catch (Exception e) {
+            warn("로그 JMX 등록 실패: " + e.getMessage());
+        }
+    }
+
+    static boolean isEnabled(Level level) {
+        return level.compareTo(Log.level) >= 0;
+    }
+
+    // C2S/S2C 메시지를 남길지. 문자열을 만들기 전에 확인한다.
+    static boolean tracing(String username, GameRoom room) {
+        Set<String> users = traceUsers;
+        if (username != null && !users.isEmpty() && users.contains(username)) return true;
+        Set<String> rooms = traceRooms;
+        if (room != null && !rooms.isEmpty() && rooms.contains(Integer.toString(room.getRoomId()))) return true;
+        int n = sample;
+        return level == Level.TRACE && (n == 1 || ThreadLocalRandom.current().nextInt(n) == 0);
+    }
+
+    static void trace(String message) {
+        offer(new Entry(Level.TRACE, message, null));
+    }
+
+    static void debug(String message) {
+        if (isEnabled(Level.DEBUG)) offer(new Entry(Level.DEBUG, message, null));
+    }
+
+    static void info(String message) {
+        if (isEnabled(Level.INFO)) offer(new Entry(Level.INFO, message, null));
+    }
+
+    static void warn(String message) {
+        if (isEnabled(Level.WARN)) offer(new Entry(Level.WARN, message, null));
+    }
+
+    static void error(String message) {
+        error(message, null);
+    }
+
+    static void error(String message, Throwable error) {
+        offer(new Entry(Level.ERROR, message, error));
+    }
+
+    // 여러 스레드가 CAS 로 칸을 잡고, 잡은 칸에 값을 채운다. 출력 스레드는 칸이 채워질 때까지 기다렸다 읽는다.
+    private static void offer(Entry entry) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head >= CAPACITY) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        ring.set((int) (t & (CAPACITY - 1)), entry);
+        LockSupport.unpark(writer);
+    }
+
+    private static void drainLoop() {
+        while (true) {
+            if (!drain()) LockSupport.parkNanos(Log.class, 50_000_000L);
+        }
+    }
+
+    // 지금까지 들어온 항목을 모두 출력한다. 출력한 것이 있으면 true
+    private static synchronized boolean drain() {
+        long h = head;
+        long t = tail.get();
+        if (h == t) return false;
+        PrintStream stream = out;
+        StringBuilder sb = new StringBuilder(256);
+        for (; h < t; h++) {
+            int index = (int) (h & (CAPACITY - 1));
+            Entry entry;
+            while ((entry = ring.get(index)) == null) {
+                Thread.onSpinWait();
+            }
+            ring.set(index, null);
+            head = h + 1;
+
+            sb.setLength(0);
+            sb.append(TIME.format(entry.time)).append(' ').append(entry.level).append(' ').append(entry.message);
+            long lost = dropped.sumThenReset();
+            if (lost > 0) sb.append(" (로그 ").append(lost).append("개 버림)");
+            stream.println(sb);
+            if (entry.error != null) entry.error.printStackTrace(stream);
+        }
+        stream.flush();
+        return true;
+    }
+
+    // 추적 목록을 바꾸는 쪽끼리만 잠근다. 읽는 쪽은 volatile 필드만 본다.
+    private static final Object TRACE_LOCK = new Object();
+
+    private static void setTracing(String kind, String value, boolean on) {
+        synchronized (TRACE_LOCK) {
+            updateTracing(kind, value, on);
+        }
+        info("[log] " + (kind.equals("user") ? "유저 " : "방 ") + value + " 추적 " + (on ? "켬" : "끔"));
+    }
+
+    private static void updateTracing(String kind, String value, boolean on) {
+        Set<String> current = kind.equals("user") ? traceUsers : traceRooms;
+        Set<String> next = new HashSet<>(current);
+        if (on) {
+            next.add(value);
+        } else {
+            next.remove(value);
+        }
+        if (kind.equals("user")) {
+            traceUsers = Collections.unmodifiableSet(next);
+        } else {
+            traceRooms = Collections.unmodifiableSet(next);
+        }
+    }
+
+    private static final class Control implements LogControlMBean {
+        @Override
+        public String getLevel() {
+            return level.name();
+        }
+
+        @Override
+        public void setLevel(String value) {
+            level = Level.valueOf(value.trim().toUpperCase());
+            info("[log] 레벨 " + level);
+        }
+
+        @Override
+        public int getSample() {
+            return sample;
+        }
+
+        @Override
+        public void setSample(int value) {
+            sample = Math.max(1, value);
+        }
+
+        @Override
+        public String getTraceUsers() {
+            return String.join(",", traceUsers);
+        }
+
+        @Override
+        public void setTraceUsers(String users) {
+            synchronized (TRACE_LOCK) {
+                traceUsers = csv(users == null ? "" : users);
+            }
+            info("[log] 추적 유저: " + getTraceUsers());
+        }
+
+        @Override
+        public String getTraceRooms() {
+            return String.join(",", traceRooms);
+        }
+
+        @Override
+        public void setTraceRooms(String roomIds) {
+            synchronized (TRACE_LOCK) {
+                traceRooms = csv(roomIds == null ? "" : roomIds);
+            }
+            info("[log] 추적 방: " + getTraceRooms());
+        }
+
+        @Override
+        public void traceUser(String username) {
+            setTracing("user", username.trim(), true);
+        }
+
+        @Override
+        public void untraceUser(String username) {
+            setTracing("user", username.trim(), false);
+        }
+
+        @Override
+        public void traceRoom(int roomId) {
+            setTracing("room", Integer.toString(roomId), true);
+        }
+
+        @Override
+        public void untraceRoom(int roomId) {
+            setTracing("room", Integer.toString(roomId), false);
+        }
+    }
+
+    private static Set<String> csv(String value) {
+        if (value.trim().isEmpty()) return Collections.emptySet();
+        Set<String> set = new HashSet<>();
+        for (String s : value.split(",")) {
+            if (!s.trim().isEmpty()) set.add(s.trim());
+        }
+        return Collections.unmodifiableSet(set);
+    }
+}
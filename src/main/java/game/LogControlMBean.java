@@ -0,0 +1,30 @@
+package game;
+
+// 운영 중에 로그 레벨과 추적 대상을 바꾸는 JMX 인터페이스 (game:type=Log). jconsole 등에서 붙어 쓴다.
+// 시작 값은 blokus.log.level / blokus.log.sample / blokus.trace.users / blokus.trace.rooms 속성이다.
+public interface LogControlMBean {
+    String getLevel();
+
+    void setLevel(String level);
+
+    int getSample();
+
+    void setSample(int sample);
+
+    // 쉼표로 구분한 목록. 빈 문자열이면 모두 끈다.
+    String getTraceUsers();
+
+    void setTraceUsers(String users);
+
+    String getTraceRooms();
+
+    void setTraceRooms(String roomIds);
+
+    void traceUser(String username);
+
+    void untraceUser(String username);
+
+    void traceRoom(int roomId);
+
+    void untraceRoom(int roomId);
+}
@@ -0,0 +1,49 @@
+package game;
+
+import java.util.Set;
+
+// 송신 큐가 밀린 연결에 S2C 메시지를 어떻게 넣을지 정하는 분류
+enum MessageClass {
+    // 항상 전체 값을 담는 상태 메시지. 밀려 있으면 큐에 남은 같은 종류의 이전 값을 새 값으로 덮어쓴다.
+    STATE,
+    // 채팅/귓속말. 밀려 있으면 본문을 잘라서 넣는다.
+    CHAT,
+    // 그 밖의 메시지. 순서가 중요하므로 버리거나 바꾸지 않는다.
+    CONTROL;
+
+    static final int TRUNCATED_CHAT_LENGTH = 120;
+
+    private static final Set<String> STATE_TYPES = Set.of(
+            Protocol.S2C_GAME_STATE,
+            Protocol.S2C_PEERLESS_BOARD_UPDATE,
+            Protocol.S2C_BOARD_SNAPSHOT,
+            Protocol.S2C_TURN_UPDATE,
+            Protocol.S2C_HAND_UPDATE,
+            Protocol.S2C_HAND_INIT,
+            Protocol.S2C_TIME_UPDATE,
+            Protocol.S2C_CLOCK,
+            Protocol.S2C_LATENCY,
+            Protocol.S2C_PEERLESS_TIMER_UPDATE,
+            Protocol.S2C_PEERLESS_PREP_TIMER_UPDATE,
+            Protocol.S2C_ROOM_UPDATE,
+            Protocol.S2C_ROOM_LIST,
+            Protocol.S2C_LEADERBOARD_DATA);
+
+    static String typeOf(String message) {
+        int colon = message.indexOf(':');
+        return colon < 0 ? message : message.substring(0, colon);
+    }
+
+    static MessageClass of(String type) {
+        if (STATE_TYPES.contains(type)) return STATE;
+        if (type.equals(Protocol.S2C_CHAT) || type.equals(Protocol.S2C_WHISPER)) return CHAT;
+        return CONTROL;
+    }
+
+    static String truncateChat(String message) {
+        if (message.length() <= TRUNCATED_CHAT_LENGTH) return message;
+        int end = TRUNCATED_CHAT_LENGTH;
+        if (Character.isHighSurrogate(message.charAt(end - 1))) end--;
+        return message.substring(0, end) + "…";
+    }
+}
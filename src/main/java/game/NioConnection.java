@@ -0,0 +1,158 @@
+package game;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// EventLoop 가 소유하는 논블로킹 연결. 읽기/쓰기는 항상 EventLoop 스레드에서만 일어난다.
+final class NioConnection extends Connection {
+    private static final int MAX_GATHER = 64;
+    // 한 번에 큐에서 꺼내 둘 최대 바이트. 나머지는 큐에 남겨야 워터마크가 밀림을 알아챈다.
+    private static final int MAX_GATHER_BYTES = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final EventLoop loop;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private SelectionKey key;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    // 한 번의 gathering write 로 내보낼 프레임들. [gatherStart, gatherEnd) 가 아직 다 쓰지 못한 부분이다.
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+    private int gatherStart;
+    private int gatherEnd;
+
+    NioConnection(SocketChannel channel, EventLoop loop, ClientHandler handler) {
+        super(handler);
+        this.channel = channel;
+        this.loop = loop;
+    }
+
+    void attachKey(SelectionKey key) {
+        this.key = key;
+        flush();
+    }
+
+    void onReadable() {
+        int read;
+        try {
+            read = channel.read(readBuffer);
+        } catch (IOException e) {
+            Log.info(describe() + " IO 오류: " + e.getMessage());
+            close();
+            return;
+        }
+        if (read < 0) {
+            Log.info(describe() + " 연결 종료.");
+            close();
+            return;
+        }
+
+        readBuffer.flip();
+        try {
+            onBytes(readBuffer);
+            readBuffer.compact();
+            if (!readBuffer.hasRemaining()) readBuffer = grow(readBuffer);
+        } catch (EOFException e) {
+            Log.info(describe() + " 연결 종료.");
+            close();
+        } catch (IOException e) {
+            Log.warn(describe() + " 잘못된 스트림 수신: " + e.getMessage());
+            close();
+        }
+    }
+
+    @Override
+    protected void wakeWriter() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(this::flush);
+        }
+    }
+
+    // onBytes 에서 불리므로 이미 EventLoop 스레드다.
+    @Override
+    protected void writePreamble(ByteBuffer buf) {
+        gather[gatherEnd++] = buf;
+        flush();
+    }
+
+    @Override
+    void closeGracefully() {
+        loop.execute(this::close);
+    }
+
+    @Override
+    void abort() {
+        loop.execute(() -> {
+            outbound.clear();
+            Arrays.fill(gather, null);
+            gatherStart = gatherEnd = 0;
+            close();
+        });
+    }
+
+    // 큐에 쌓인 메시지를 최대 MAX_GATHER 개(MAX_GATHER_BYTES)씩 모아 write(ByteBuffer[]) 한 번으로 내보낸다.
+    void flush() {
+        flushScheduled.set(false);
+        if (key == null || !key.isValid()) return;
+        try {
+            while (true) {
+                int messages = fillGather();
+                if (gatherStart == gatherEnd) break;
+                long written = channel.write(gather, gatherStart, gatherEnd - gatherStart);
+                ServerMetrics.recordFlush(messages, written);
+                while (gatherStart < gatherEnd && !gather[gatherStart].hasRemaining()) {
+                    gather[gatherStart++] = null;
+                }
+                if (gatherStart < gatherEnd) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                gatherStart = gatherEnd = 0;
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            Log.warn("S2C Send Error to " + handler.getUsername() + ": " + e.getMessage());
+            close();
+        }
+    }
+
+    // 남은 프레임을 배열 앞으로 당긴 뒤 빈 자리를 큐의 메시지로 채운다. 새로 채운 메시지 수를 돌려준다.
+    private int fillGather() {
+        if (gatherStart > 0) {
+            int pending = gatherEnd - gatherStart;
+            System.arraycopy(gather, gatherStart, gather, 0, pending);
+            Arrays.fill(gather, pending, gatherEnd, null);
+            gatherStart = 0;
+            gatherEnd = pending;
+        }
+        long pendingBytes = 0;
+        for (int i = 0; i < gatherEnd; i++) pendingBytes += gather[i].remaining();
+        int added = 0;
+        OutboundMessage message;
+        while (gatherEnd < MAX_GATHER && pendingBytes < MAX_GATHER_BYTES && (message = outbound.poll()) != null) {
+            ByteBuffer buf = encode(message);
+            gather[gatherEnd++] = buf;
+            pendingBytes += buf.remaining();
+            added++;
+        }
+        return added;
+    }
+
+    @Override
+    protected void closeTransport() {
+        loop.execute(() -> {
+            // 로그인 실패 메시지처럼 닫기 직전에 보낸 메시지는 한 번 더 내보내 본다.
+            flush();
+            if (key != null) key.cancel();
+            releaseCompressor();
+            try {
+                channel.close();
+            } catch (IOException e) {
+            }
+        });
+    }
+}
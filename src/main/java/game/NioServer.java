@@ -0,0 +1,55 @@
+package game;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+// Selector 기반 acceptor. 접속한 채널은 소수의 EventLoop 에 라운드 로빈으로 분배한다.
+final class NioServer {
+    private final BlokusServer server;
+    private final int port;
+    private final EventLoop[] loops;
+    private int nextLoop = 0;
+
+    NioServer(BlokusServer server, int port, int loopCount) throws IOException {
+        this.server = server;
+        this.port = port;
+        this.loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop("blokus-io-" + i);
+        }
+    }
+
+    void run() throws IOException {
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open();
+             Selector acceptSelector = Selector.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+            Log.info("블로커스 서버 시작 (NIO, 이벤트 루프 " + loops.length + "개). 포트: " + port);
+
+            while (true) {
+                acceptSelector.select();
+                acceptSelector.selectedKeys().clear();
+
+                SocketChannel channel;
+                while ((channel = serverChannel.accept()) != null) {
+                    Log.info("새 클라이언트 접속: " + channel.getRemoteAddress());
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+                    loops[nextLoop].register(channel, server);
+                    nextLoop = (nextLoop + 1) % loops.length;
+                }
+            }
+        }
+    }
+}
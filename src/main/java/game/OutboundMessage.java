@@ -0,0 +1,64 @@
+package game;
+
+import java.nio.ByteBuffer;
+
+// 한 번 만들어 여러 수신자의 송신 큐가 함께 쓰는 S2C 메시지.
+// 인코딩 결과는 코덱 형식별로 처음 필요할 때 한 번만 만들어 두고, 각 writer 는 duplicate() 로 위치만 따로 갖는다.
+// 만들어진 바이트는 누구도 고치지 않으며, 마지막 수신자의 큐에서 빠지면 GC 가 회수한다.
+final class OutboundMessage {
+    final String text;
+    final String type;
+    final MessageClass messageClass;
+    // BOARD_SNAPSHOT 이면 FrameCodec.packBoard 결과, 아니면 null. 이때 text 는 "BOARD_SNAPSHOT:seq" 까지만 담는다.
+    private final byte[] board;
+    private final int boardSeq;
+
+    // 같은 값을 두 스레드가 동시에 만들 수는 있지만 결과가 같으므로 락 없이 둔다.
+    private volatile ByteBuffer frame;
+    private volatile ByteBuffer legacy;
+
+    OutboundMessage(String text) {
+        this(text, null, 0);
+    }
+
+    private OutboundMessage(String text, byte[] board, int boardSeq) {
+        this.text = text;
+        this.type = MessageClass.typeOf(text);
+        this.messageClass = MessageClass.of(type);
+        this.board = board;
+        this.boardSeq = boardSeq;
+    }
+
+    static OutboundMessage boardSnapshot(int seq, int[][] board) {
+        return new OutboundMessage(Protocol.S2C_BOARD_SNAPSHOT + ":" + seq, FrameCodec.packBoard(board), seq);
+    }
+
+    // 반환된 버퍼의 position/limit 은 호출한 쪽이 마음대로 움직여도 된다.
+    ByteBuffer encodedFor(WireCodec codec) {
+        if (codec instanceof FrameCodec) {
+            ByteBuffer f = frame;
+            if (f == null) frame = f = encode(codec);
+            return f.duplicate();
+        }
+        if (codec instanceof LegacyStreamCodec) {
+            ByteBuffer l = legacy;
+            if (l == null) legacy = l = encode(codec);
+            return l.duplicate();
+        }
+        return encode(codec);
+    }
+
+    private ByteBuffer encode(WireCodec codec) {
+        ServerMetrics.recordEncode();
+        return board != null ? codec.encodeBoard(boardSeq, board) : codec.encode(text);
+    }
+
+    // 텍스트로 나타낼 수 없는 이진 프레임(OP_BOARD)인지
+    boolean isBinary() {
+        return board != null;
+    }
+
+    int length() {
+        return board != null ? text.length() + board.length : text.length();
+    }
+}
@@ -0,0 +1,109 @@
+package game;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 여러 스레드(방, 타이머, 서버)가 넣고 연결의 writer 하나만 꺼내는 크기 제한 큐. 넣는 쪽은 절대 블로킹되지 않는다.
+// 쌓인 양(문자 수 기준)이 highWatermark 를 넘으면 밀림(congested) 상태가 되고, lowWatermark 아래로 빠지면 풀린다.
+final class OutboundQueue {
+    // offerLatest 로 들어온 메시지의 자리. 꺼낼 때 latest 에 있는 가장 최근 값으로 바뀐다.
+    private static final class Slot {
+        final String key;
+
+        Slot(String key) {
+            this.key = key;
+        }
+    }
+
+    private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, OutboundMessage> latest = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong queuedChars = new AtomicLong();
+    private final int capacity;
+    private final long highWatermark;
+    private final long lowWatermark;
+
+    private volatile boolean congested = false;
+    private volatile long congestedSince;
+
+    OutboundQueue(int capacity, long highWatermark, long lowWatermark) {
+        this.capacity = capacity;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+    }
+
+    // 가득 찼으면 false
+    boolean offer(OutboundMessage message) {
+        if (!reserve(message.length())) return false;
+        queue.add(message);
+        return true;
+    }
+
+    // 같은 key 의 메시지가 아직 큐에 있으면 그 자리의 내용만 새 메시지로 바꾼다.
+    boolean offerLatest(String key, OutboundMessage message) {
+        OutboundMessage previous = latest.put(key, message);
+        if (previous != null) {
+            queuedChars.addAndGet(message.length() - previous.length());
+            ServerMetrics.recordConflated();
+            return true;
+        }
+        if (!reserve(message.length())) {
+            latest.remove(key, message);
+            return false;
+        }
+        queue.add(new Slot(key));
+        return true;
+    }
+
+    private boolean reserve(int chars) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return false;
+        }
+        if (queuedChars.addAndGet(chars) > highWatermark && !congested) {
+            congestedSince = System.nanoTime();
+            congested = true;
+        }
+        return true;
+    }
+
+    OutboundMessage poll() {
+        while (true) {
+            Object item = queue.poll();
+            if (item == null) return null;
+            size.decrementAndGet();
+            OutboundMessage message = item instanceof Slot ? latest.remove(((Slot) item).key) : (OutboundMessage) item;
+            if (message == null) continue;
+            if (queuedChars.addAndGet(-message.length()) <= lowWatermark && congested) {
+                congested = false;
+            }
+            return message;
+        }
+    }
+
+    // 닫히는 연결의 남은 메시지를 버린다. writer 스레드에서만 부른다.
+    void clear() {
+        while (poll() != null) {
+        }
+    }
+
+    boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    boolean isCongested() {
+        return congested;
+    }
+
+    // 밀림 상태가 이어진 시간. 밀려 있지 않으면 0
+    long congestedNanos() {
+        return congested ? System.nanoTime() - congestedSince : 0;
+    }
+}
@@ -0,0 +1,38 @@
+package game;
+
+// PLACE 명령. pieceId 는 BlokusPiece.ALL_PIECE_IDS 의 상수 그대로다.
+final class PlaceCommand {
+    final String pieceId;
+    final int x;
+    final int y;
+    final int rotation;
+    final boolean flipped;
+    // 피어리스 모드에서 놓을 색. 클래식 모드에서는 0
+    final int color;
+    // 연결에서 읽어 들인 시각(System.nanoTime). 클래식 턴 시간은 이 시각으로 깎는다.
+    final long receivedNanos;
+
+    private PlaceCommand(String pieceId, int x, int y, int rotation, boolean flipped, int color, long receivedNanos) {
+        this.pieceId = pieceId;
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+        this.flipped = flipped;
+        this.color = color;
+        this.receivedNanos = receivedNanos;
+    }
+
+    // 형식: ID:x:y:rotation:flipped[:color]. 잘못된 입력이면 null
+    static PlaceCommand parse(CommandCursor in, long receivedNanos) {
+        String pieceId = in.nextToken(BlokusPiece.ALL_PIECE_IDS);
+        int x = in.nextInt();
+        int y = in.nextInt();
+        int rotation = in.nextInt();
+        int flipped = in.nextInt();
+        int color = in.hasMore() ? in.nextInt() : 0;
+        if (!in.ok() || rotation < 0 || rotation > 3 || (flipped != 0 && flipped != 1) || color < 0 || color > 4) {
+            return null;
+        }
+        return new PlaceCommand(pieceId, x, y, rotation, flipped == 1, color, receivedNanos);
+    }
+}
@@ -2,6 +2,30 @@ package game;
 
 public class Protocol {
 
+    // LOGIN:이름:버전:기능,... 으로 알린다. 버전이 없으면 1 로 보고 기존 문자열 메시지만 보낸다.
+    // 2 이상이면 LOGIN_SUCCESS:버전:켜진기능 으로 답한다 (Capability 참고).
+    // 3 부터는 LEADERBOARD_DATA/ROOM_LIST 가 종류:버전:내용 형식으로 오고, GET_LEADERBOARD:버전 / GET_ROOM_LIST:버전 에
+    // 바뀐 것이 없으면 NOT_MODIFIED:종류:버전 으로 답한다.
+    public static final int VERSION = 3;
+
+    // 모든 C2S 명령어 뒤에 '@요청ID' 를 붙일 수 있다 (영문/숫자/'-'/'_' 16자 이내). 예: PLACE@17:I1:0:0:0:0
+    // 그 명령을 처리하면서 보낸 직접 응답은 같은 ID 를 달고 온다. 예: INVALID_MOVE@17:놓을 수 없는 위치입니다.
+    public static final char REQUEST_ID_SEPARATOR = '@';
+
+    // 여러 명령을 한 번에 보낸다. BATCH:길이:명령:길이:명령... (길이 = 명령의 문자 수)
+    // 서버는 차례로 처리한 뒤 그동안 이 클라이언트에게 보낼 메시지를 BATCH_REPLY:길이:메시지:길이:메시지... 하나로 보낸다.
+    // 이진 보드 프레임은 BATCH_REPLY 에 담지 않고 그 자리에서 따로 보낸다. BATCH 에도 요청 ID 를 붙일 수 있다.
+    public static final String C2S_BATCH = "BATCH";
+    public static final String S2C_BATCH_REPLY = "BATCH_REPLY";
+
+    // 로비 토픽. SUBSCRIBE:rooms 를 보내면 ROOM_LIST 를 한 번 받고, 이후 로비에 있는 동안 바뀐 방만
+    // ROOM_EVENT:ADD:[id,이름,인원/4,모드], ROOM_EVENT:UPDATE:[...], ROOM_EVENT:REMOVE:id 로 받는다.
+    // 방에서 로비로 돌아오면 ROOM_LIST 를 다시 받는다.
+    public static final String C2S_SUBSCRIBE = "SUBSCRIBE";
+    public static final String C2S_UNSUBSCRIBE = "UNSUBSCRIBE";
+    public static final String TOPIC_ROOMS = "rooms";
+    public static final String S2C_ROOM_EVENT = "ROOM_EVENT";
+
     public static final String C2S_LOGIN = "LOGIN";
     public static final String C2S_GET_ROOM_LIST = "GET_ROOM_LIST";
     public static final String C2S_CREATE_ROOM = "CREATE_ROOM";
@@ -18,6 +42,26 @@ public class Protocol {
 
     public static final String C2S_RESIGN_PEERLESS = "RESIGN_PEERLESS";
 
+    // 하트비트. 서버가 보낸 PING 에 클라이언트는 PONG 으로 답한다.
+    // RTT 기능이면 PING:토큰 도 주기적으로 오며, PONG:토큰 으로 받은 즉시 그대로 돌려준다.
+    // 서버는 잰 왕복 시간(평활값)을 LATENCY:ms 로 알려 준다.
+    public static final String S2C_PING = "PING";
+    public static final String C2S_PONG = "PONG";
+    public static final String S2C_LATENCY = "LATENCY";
+
+    // 보드 동기화 (DELTA 기능). BOARD_SNAPSHOT 은 FrameCodec.OP_BOARD 이진 프레임(seq + 보드 런 바이트)으로 간다.
+    // BOARD_DELTA:seq:color:칸번호,칸번호,... (칸번호 = y*20+x)
+    // BINARY 기능이 없으면 BOARD_SNAPSHOT:seq:보드 전체 텍스트로 보낸다.
+    // 클라이언트는 seq 가 건너뛰면 RESYNC 를 보내 스냅샷을 다시 받는다. DELTA 기능이 없으면 GAME_STATE/PEERLESS_BOARD_UPDATE 를 받는다.
+    public static final String S2C_BOARD_SNAPSHOT = "BOARD_SNAPSHOT";
+    public static final String S2C_BOARD_DELTA = "BOARD_DELTA";
+    public static final String S2C_TURN_UPDATE = "TURN_UPDATE";
+    public static final String C2S_RESYNC = "RESYNC";
+
+    // CLOCK 기능. CLOCK:단계:색:남은ms:마감시각[:색별 남은 초] (단계 = TURN/PREP/COUNTDOWN/MAIN, 피어리스는 색 0)
+    // 상태가 바뀔 때와 몇 초마다 보정용으로만 오고, 그 사이는 클라이언트가 센다. 기존 클라이언트는 매초 TIME_UPDATE 류를 받는다.
+    public static final String S2C_CLOCK = "CLOCK";
+
     public static final String S2C_LOGIN_SUCCESS = "LOGIN_SUCCESS";
     public static final String S2C_LOGIN_FAIL = "LOGIN_FAIL";
     public static final String S2C_ROOM_LIST = "ROOM_LIST";
@@ -29,12 +73,16 @@ public class Protocol {
     public static final String S2C_GAME_START = "GAME_START";
     public static final String S2C_GAME_STATE = "GAME_STATE";
     public static final String S2C_HAND_UPDATE = "HAND_UPDATE";
+    // DELTA 기능. 시작할 때 HAND_INIT:색=마스크,... 로 한 번 받고, 이후에는 쓴 조각만 HAND_REMOVE:조각ID/색 으로 받는다.
+    public static final String S2C_HAND_INIT = "HAND_INIT";
+    public static final String S2C_HAND_REMOVE = "HAND_REMOVE";
     public static final String S2C_VALID_MOVE = "VALID_MOVE";
     public static final String S2C_INVALID_MOVE = "INVALID_MOVE";
     public static final String S2C_GAME_OVER = "GAME_OVER";
     public static final String S2C_CHAT = "CHAT";
     public static final String S2C_SYSTEM_MSG = "SYSTEM_MSG";
     public static final String S2C_LEADERBOARD_DATA = "LEADERBOARD_DATA";
+    public static final String S2C_NOT_MODIFIED = "NOT_MODIFIED";
     public static final String S2C_WHISPER = "WHISPER";
     public static final String S2C_TIME_UPDATE = "TIME_UPDATE";
 
@@ -0,0 +1,82 @@
+package game;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// 방 작업만 도는 스레드 하나. 방은 만들어질 때 루프 하나에 묶여 끝날 때까지 옮겨 가지 않으므로
+// 한 방의 명령/틱은 항상 같은 스레드(같은 코어의 캐시)에서 처리된다.
+final class RoomLoop extends Thread implements Executor {
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger rooms = new AtomicInteger();
+    private volatile boolean parked;
+
+    // report() 사이 구간 값
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private long lastReportNanos = System.nanoTime();
+
+    RoomLoop(String name) {
+        super(name);
+        setDaemon(true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        int d = depth.incrementAndGet();
+        if (d > maxDepth.get()) maxDepth.accumulateAndGet(d, Math::max);
+        if (parked) LockSupport.unpark(this);
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                parked = true;
+                // parked 를 세운 뒤 한 번 더 봐야 그 사이에 들어온 작업의 unpark 를 놓치지 않는다.
+                if (tasks.isEmpty()) LockSupport.park(this);
+                parked = false;
+                continue;
+            }
+            depth.decrementAndGet();
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                // Error 도 여기서 받는다. 루프가 죽으면 여기 묶인 방과 그 방으로 넘어온 클라이언트 처리가 모두 멈춘다.
+                Log.error(getName() + " 작업 처리 중 예외 발생: " + e, e);
+            }
+            busyNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    void assign() {
+        rooms.incrementAndGet();
+    }
+
+    void release() {
+        rooms.decrementAndGet();
+    }
+
+    // 새 방을 어느 루프에 둘지 고를 때 쓴다. 방 수가 적은 쪽, 같으면 밀린 작업이 적은 쪽
+    boolean lighterThan(RoomLoop other) {
+        int r = rooms.get();
+        int o = other.rooms.get();
+        return r != o ? r < o : depth.get() < other.depth.get();
+    }
+
+    // 방 n개, 큐 지금/최대, 사용률(구간 중 작업을 실행한 시간 비율). 출력할 때마다 구간 값은 0 으로 돌아간다.
+    synchronized String report() {
+        long now = System.nanoTime();
+        long interval = Math.max(1, now - lastReportNanos);
+        lastReportNanos = now;
+        return String.format("%s 방 %d개, 큐 %d (최대 %d), 사용률 %.1f%%", getName(), rooms.get(), depth.get(),
+                maxDepth.getAndSet(depth.get()), 100.0 * busyNanos.getAndSet(0) / interval);
+    }
+}
@@ -0,0 +1,60 @@
+package game;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 방 하나의 메일박스. 어느 스레드에서 넣은 작업이든 넣은 순서대로, 한 번에 한 스레드에서만 실행한다.
+// 방 상태는 이 메일박스 안에서만 만지므로 락이 필요 없다. 실제 실행은 방이 묶인 RoomLoop 가 맡는다.
+final class RoomMailbox implements Executor {
+    // 한 번 깨어났을 때 처리할 최대 작업 수. 넘으면 루프에 다시 넣어 같은 루프의 다른 방에게 차례를 넘긴다.
+    private static final int BUDGET = 64;
+
+    private final String name;
+    private final Executor loop;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile Thread runner;
+
+    RoomMailbox(String name, Executor loop) {
+        this.name = name;
+        this.loop = loop;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (scheduled.compareAndSet(false, true)) loop.execute(this::drain);
+    }
+
+    // 지금 스레드가 이 메일박스의 작업을 실행 중인지
+    boolean inMailbox() {
+        return runner == Thread.currentThread();
+    }
+
+    // 작업 하나가 보낸 메시지들은 WriteBatch 로 묶여 연결마다 한 번에 나간다.
+    private void drain() {
+        runner = Thread.currentThread();
+        try {
+            for (int i = 0; i < BUDGET; i++) {
+                Runnable task = tasks.poll();
+                if (task == null) break;
+                WriteBatch.begin();
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    // 작업 하나가 Error 를 던져도 같은 방의 다음 작업과 루프는 계속 돈다.
+                    Log.error(name + " 처리 중 예외 발생: " + e, e);
+                } finally {
+                    WriteBatch.end();
+                }
+            }
+        } finally {
+            runner = null;
+            scheduled.set(false);
+            // 내려놓는 사이에 들어온 작업이 있으면 다시 예약한다.
+            if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) loop.execute(this::drain);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package game;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// 서버 전역 카운터. 주기적으로 report() 로 출력하며, 출력할 때마다 구간 값은 0 으로 돌아간다.
+final class ServerMetrics {
+    private static final LongAdder flushes = new LongAdder();
+    private static final LongAdder flushedMessages = new LongAdder();
+    private static final LongAdder flushedBytes = new LongAdder();
+    private static final LongAdder encodes = new LongAdder();
+    private static final LongAdder conflated = new LongAdder();
+    private static final LongAdder chatTruncated = new LongAdder();
+    private static final LongAdder slowConsumerDisconnects = new LongAdder();
+    private static final LongAdder idleReaped = new LongAdder();
+    private static final LongAdder compressed = new LongAdder();
+    private static final LongAdder compressedInBytes = new LongAdder();
+    private static final LongAdder compressedOutBytes = new LongAdder();
+    private static final LongAdder compressNanos = new LongAdder();
+
+    private ServerMetrics() {
+    }
+
+    // 소켓 쓰기 한 번에 몇 개의 메시지, 몇 바이트를 실어 보냈는지
+    static void recordFlush(int messages, long bytes) {
+        flushes.increment();
+        flushedMessages.add(messages);
+        flushedBytes.add(bytes);
+    }
+
+    // 실제로 프레임을 만든 횟수. 브로드캐스트는 수신자가 몇 명이든 형식별로 한 번이다.
+    static void recordEncode() {
+        encodes.increment();
+    }
+
+    // 밀린 연결에서 이전 상태 메시지를 새 값으로 덮어쓴 횟수
+    static void recordConflated() {
+        conflated.increment();
+    }
+
+    static void recordChatTruncated() {
+        chatTruncated.increment();
+    }
+
+    static void recordSlowConsumerDisconnect() {
+        slowConsumerDisconnects.increment();
+    }
+
+    // 하트비트에 응답하지 않아 끊은 연결
+    static void recordIdleReaped() {
+        idleReaped.increment();
+    }
+
+    // DEFLATE 연결에서 프레임 하나를 압축하는 데 든 바이트와 시간
+    static void recordCompression(int inBytes, int outBytes, long nanos) {
+        compressed.increment();
+        compressedInBytes.add(inBytes);
+        compressedOutBytes.add(outBytes);
+        compressNanos.add(nanos);
+    }
+
+    static String report() {
+        long f = flushes.sumThenReset();
+        long m = flushedMessages.sumThenReset();
+        long b = flushedBytes.sumThenReset();
+        long zIn = compressedInBytes.sumThenReset();
+        long zOut = compressedOutBytes.sumThenReset();
+        return String.format("송신: flush %d회, 메시지 %d개 (flush당 %.2f개, %d바이트), 인코딩 %d회"
+                        + " / 압축: %d회, %d -> %d바이트 (%.1f%%), CPU %.2fms"
+                        + " / 느린 연결: 상태 덮어쓰기 %d, 채팅 자르기 %d, 끊김 %d / 무응답 끊김 %d",
+                f, m, f == 0 ? 0.0 : (double) m / f, f == 0 ? 0 : b / f, encodes.sumThenReset(),
+                compressed.sumThenReset(), zIn, zOut, zIn == 0 ? 0.0 : 100.0 * zOut / zIn,
+                compressNanos.sumThenReset() / 1e6,
+                conflated.sumThenReset(), chatTruncated.sumThenReset(), slowConsumerDisconnects.sumThenReset(),
+                idleReaped.sumThenReset());
+    }
+}
@@ -0,0 +1,129 @@
+package game;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+// 연결마다 읽기 스레드와 쓰기 스레드(플랫폼 또는 가상)가 하나씩 붙는 방식.
+// 읽기 스레드는 read() 에서, 쓰기 스레드는 송신 큐가 빌 때 park 로 대기한다.
+final class SocketConnection extends Connection implements Runnable {
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final Socket socket;
+    private final ThreadFactory threads;
+    private volatile Thread writer;
+    private volatile boolean closeRequested = false;
+    private OutputStream out;
+
+    SocketConnection(Socket socket, ClientHandler handler, ThreadFactory threads) {
+        super(handler);
+        this.socket = socket;
+        this.threads = threads;
+    }
+
+    @Override
+    public void run() {
+        try {
+            out = new BufferedOutputStream(socket.getOutputStream(), WRITE_BUFFER_SIZE);
+            InputStream in = socket.getInputStream();
+            writer = threads.newThread(this::writeLoop);
+            writer.start();
+            ByteBuffer buf = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+            while (!isClosed()) {
+                int read = in.read(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+                if (read < 0) {
+                    Log.info(describe() + " 연결 종료.");
+                    break;
+                }
+                buf.position(buf.position() + read);
+                buf.flip();
+                onBytes(buf);
+                buf.compact();
+                if (!buf.hasRemaining()) buf = grow(buf);
+            }
+
+        } catch (SocketException | EOFException e) {
+            Log.info(describe() + " 연결 종료.");
+        } catch (IOException e) {
+            Log.info(describe() + " IO 오류: " + e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    // 큐에 있는 메시지를 모두 버퍼에 쓴 뒤 한 번만 flush 한다.
+    private void writeLoop() {
+        try {
+            int messages = 0;
+            long bytes = 0;
+            while (!isClosed()) {
+                OutboundMessage message = outbound.poll();
+                if (message == null) {
+                    if (messages > 0) {
+                        out.flush();
+                        ServerMetrics.recordFlush(messages, bytes);
+                        messages = 0;
+                        bytes = 0;
+                        continue;
+                    }
+                    if (closeRequested) break;
+                    LockSupport.park(this);
+                    continue;
+                }
+                ByteBuffer buf = encode(message);
+                out.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+                messages++;
+                bytes += buf.remaining();
+            }
+        } catch (IOException e) {
+            if (!isClosed()) {
+                Log.warn("S2C Send Error to " + handler.getUsername() + ": " + e.getMessage());
+            }
+        } finally {
+            close();
+            releaseCompressor();
+        }
+    }
+
+    @Override
+    protected void wakeWriter() {
+        Thread w = writer;
+        if (w != null) LockSupport.unpark(w);
+    }
+
+    // 읽기 스레드에서 codec 이 공개되기 전에 불리므로 쓰기 스레드와 겹치지 않는다.
+    @Override
+    protected void writePreamble(ByteBuffer buf) throws IOException {
+        out.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+        out.flush();
+    }
+
+    @Override
+    void closeGracefully() {
+        closeRequested = true;
+        wakeWriter();
+    }
+
+    // 소켓만 닫으면 블로킹 중인 읽기/쓰기 스레드가 예외로 깨어나 close() 를 부른다.
+    @Override
+    void abort() {
+        closeTransport();
+    }
+
+    @Override
+    protected void closeTransport() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+        }
+        wakeWriter();
+    }
+}
@@ -0,0 +1,35 @@
+package game;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+// 연결 하나의 바이트 스트림과 String 메시지 사이의 변환. 디코더 상태는 연결마다 따로 가진다.
+interface WireCodec {
+    int MAX_MESSAGE_BYTES = 1 << 20;
+
+    // 완성된 메시지가 없으면 null 을 반환하고 버퍼 위치를 그대로 둔다.
+    String decode(ByteBuffer in) throws IOException;
+
+    ByteBuffer encode(String message);
+
+    // FrameCodec.packBoard 로 묶은 보드 스냅샷
+    ByteBuffer encodeBoard(int seq, byte[] packed);
+
+    // 코덱이 정해진 직후 서버가 먼저 보내야 하는 바이트. 없으면 null.
+    ByteBuffer preamble();
+
+    // 클라이언트가 처음 보낸 4바이트로 프로토콜을 고른다. 아직 4바이트가 안 모였으면 null.
+    static WireCodec detect(ByteBuffer in) throws IOException {
+        if (in.remaining() < 4) return null;
+        int magic = in.getInt(in.position());
+        if (magic == FrameCodec.MAGIC) {
+            in.position(in.position() + 4);
+            return new FrameCodec();
+        }
+        if ((short) (magic >>> 16) == LegacyStreamCodec.STREAM_MAGIC) {
+            return new LegacyStreamCodec();
+        }
+        throw new StreamCorruptedException("알 수 없는 프로토콜: " + Integer.toHexString(magic));
+    }
+}
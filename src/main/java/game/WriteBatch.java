@@ -0,0 +1,42 @@
+package game;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// 한 처리 단위(수신 메시지 하나, 타이머 틱 하나) 동안 Connection.send() 가 writer 를 바로 깨우지 않고
+// 연결별로 모아 두었다가 end() 에서 한 번씩만 깨운다. 그 사이 쌓인 메시지는 writer 가 한 번의 쓰기로 내보낸다.
+final class WriteBatch {
+    private static final ThreadLocal<WriteBatch> CURRENT = new ThreadLocal<>();
+
+    private final Set<Connection> pending = new LinkedHashSet<>();
+    private int depth;
+
+    private WriteBatch() {
+    }
+
+    static void begin() {
+        WriteBatch batch = CURRENT.get();
+        if (batch == null) {
+            batch = new WriteBatch();
+            CURRENT.set(batch);
+        }
+        batch.depth++;
+    }
+
+    static void end() {
+        WriteBatch batch = CURRENT.get();
+        if (batch == null || --batch.depth > 0) return;
+        CURRENT.remove();
+        for (Connection connection : batch.pending) {
+            connection.wakeWriter();
+        }
+    }
+
+    // 배치 안이면 깨우기를 미루고 true
+    static boolean defer(Connection connection) {
+        WriteBatch batch = CURRENT.get();
+        if (batch == null) return false;
+        batch.pending.add(connection);
+        return true;
+    }
+}
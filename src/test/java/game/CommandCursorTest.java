@@ -0,0 +1,138 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandCursorTest {
+    private final CommandCursor in = new CommandCursor();
+
+    @Test
+    void readsOpcodeAndRequestId() {
+        in.reset("PLACE@17:I1:0:0:0:0");
+        assertEquals(Protocol.C2S_PLACE_BLOCK, in.opcode());
+        assertEquals("17", in.requestId());
+        assertEquals("I1", in.nextField());
+        assertTrue(in.ok());
+
+        in.reset("GET_ROOM_LIST");
+        assertEquals(Protocol.C2S_GET_ROOM_LIST, in.opcode());
+        assertNull(in.requestId());
+        assertFalse(in.hasMore());
+    }
+
+    @Test
+    void atSignInBodyIsNotRequestId() {
+        in.reset("CHAT:kim@home");
+        assertEquals(Protocol.C2S_CHAT, in.opcode());
+        assertNull(in.requestId());
+        assertEquals("kim@home", in.rest());
+    }
+
+    @Test
+    void rejectsEmptyRequestId() {
+        in.reset("PLACE@:I1:0:0:0:0");
+        assertNull(in.opcode());
+        assertNull(in.requestId());
+        assertFalse(in.ok());
+        assertEquals("", in.nextField());
+    }
+
+    @Test
+    void requestIdIsAtMostSixteenChars() {
+        in.reset("CHAT@abcdefghij-_1234:hi");
+        assertEquals(Protocol.C2S_CHAT, in.opcode());
+        assertEquals("abcdefghij-_1234", in.requestId());
+
+        in.reset("CHAT@abcdefghij-_12345:hi");
+        assertNull(in.opcode());
+        assertNull(in.requestId());
+        assertFalse(in.ok());
+    }
+
+    @Test
+    void rejectsInvalidRequestIdChars() {
+        in.reset("CHAT@a.b:hi");
+        assertNull(in.opcode());
+        assertFalse(in.ok());
+
+        in.reset("CHAT@아이디:hi");
+        assertNull(in.opcode());
+        assertFalse(in.ok());
+    }
+
+    @Test
+    void readsNegativeAndNineDigitInts() {
+        in.reset("-5:999999999:-999999999:0");
+        assertEquals(-5, in.nextInt());
+        assertEquals(999_999_999, in.nextInt());
+        assertEquals(-999_999_999, in.nextInt());
+        assertEquals(0, in.nextInt());
+        assertTrue(in.ok());
+        assertFalse(in.hasMore());
+    }
+
+    @Test
+    void rejectsIntOverflow() {
+        // 10자리부터는 int 범위 안이어도 받지 않는다. 실패 뒤의 읽기도 모두 실패한다.
+        in.reset("1234567890:7");
+        assertEquals(0, in.nextInt());
+        assertFalse(in.ok());
+        assertEquals(0, in.nextInt());
+        assertEquals("", in.nextField());
+
+        in.reset("-2147483648");
+        assertEquals(0, in.nextInt());
+        assertFalse(in.ok());
+
+        in.reset("99999999999999999999");
+        assertEquals(0, in.nextInt());
+        assertFalse(in.ok());
+    }
+
+    @Test
+    void rejectsMalformedInts() {
+        for (String field : new String[]{"", "-", "12a", "1-2", "+3", " 4"}) {
+            in.reset(field + ":1");
+            assertEquals(0, in.nextInt(), field);
+            assertFalse(in.ok(), field);
+        }
+    }
+
+    @Test
+    void sizedFieldMayContainColons() {
+        in.reset("BATCH@b1:11:PLACE@p1:I1:6:PONG:3");
+        assertEquals(Protocol.C2S_BATCH, in.opcode());
+        assertEquals("PLACE@p1:I1", in.nextSized());
+        assertEquals("PONG:3", in.nextSized());
+        assertTrue(in.ok());
+        assertFalse(in.hasMore());
+    }
+
+    @Test
+    void rejectsTruncatedSizedField() {
+        in.reset("20:CHAT:hi");
+        assertNull(in.nextSized());
+        assertFalse(in.ok());
+    }
+
+    @Test
+    void rejectsSizedFieldWithWrongLength() {
+        // 길이가 짧으면 본문 뒤가 ':' 가 아니다.
+        in.reset("3:CHAT:hi");
+        assertNull(in.nextSized());
+        assertFalse(in.ok());
+
+        in.reset("-1:CHAT");
+        assertNull(in.nextSized());
+        assertFalse(in.ok());
+    }
+
+    @Test
+    void emptySizedFieldAtEnd() {
+        in.reset("7:CHAT:hi:0:");
+        assertEquals("CHAT:hi", in.nextSized());
+        assertEquals("", in.nextSized());
+        assertTrue(in.ok());
+    }
+}
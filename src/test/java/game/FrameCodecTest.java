@@ -0,0 +1,196 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameCodecTest {
+    private final FrameCodec codec = new FrameCodec();
+
+    @Test
+    void decodesConsecutiveFrames() throws IOException {
+        ByteBuffer a = FrameCodec.encodeText("LOGIN:kim");
+        ByteBuffer b = FrameCodec.encodeText("CHAT:안녕하세요");
+        ByteBuffer in = ByteBuffer.allocate(a.remaining() + b.remaining()).put(a).put(b).flip();
+
+        assertEquals("LOGIN:kim", codec.decode(in));
+        assertEquals("CHAT:안녕하세요", codec.decode(in));
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    void partialVarintWaitsForMoreBytes() throws IOException {
+        // 200바이트짜리 본문은 길이 varint 가 2바이트다. 첫 바이트만 온 상태
+        byte[] frame = bytes(FrameCodec.encodeText("x".repeat(199)));
+        assertEquals(0x80, frame[0] & 0x80);
+
+        ByteBuffer in = ByteBuffer.wrap(frame, 0, 1);
+        assertNull(codec.decode(in));
+        assertEquals(0, in.position());
+    }
+
+    @Test
+    void partialBodyWaitsForMoreBytes() throws IOException {
+        byte[] frame = bytes(FrameCodec.encodeText("START_GAME"));
+        ByteBuffer in = ByteBuffer.allocate(frame.length);
+        in.put(frame, 0, frame.length - 3).flip();
+
+        assertNull(codec.decode(in));
+        assertEquals(0, in.position());
+
+        // 나머지가 도착하면 처음부터 다시 읽는다.
+        in.compact().put(frame, frame.length - 3, 3).flip();
+        assertEquals("START_GAME", codec.decode(in));
+    }
+
+    @Test
+    void rejectsZeroAndOversizedLength() {
+        assertThrows(StreamCorruptedException.class, () -> codec.decode(ByteBuffer.wrap(new byte[]{0})));
+
+        ByteBuffer oversized = ByteBuffer.allocate(8);
+        FrameCodec.writeVarint(oversized, WireCodec.MAX_MESSAGE_BYTES + 1);
+        oversized.flip();
+        assertThrows(StreamCorruptedException.class, () -> codec.decode(oversized));
+    }
+
+    @Test
+    void oversizedLengthIsRejectedBeforeBodyArrives() {
+        // 본문이 하나도 없어도 길이만 보고 끊는다. 1MB 를 기다리며 버퍼를 잡고 있지 않는다.
+        ByteBuffer in = ByteBuffer.allocate(8);
+        FrameCodec.writeVarint(in, Integer.MAX_VALUE);
+        in.flip();
+        assertThrows(StreamCorruptedException.class, () -> codec.decode(in));
+    }
+
+    @Test
+    void rejectsVarintLongerThanFiveBytes() {
+        byte[] bad = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x10};
+        assertThrows(StreamCorruptedException.class, () -> codec.decode(ByteBuffer.wrap(bad)));
+        assertThrows(StreamCorruptedException.class, () -> FrameCodec.readBody(new ByteArrayInputStream(bad)));
+    }
+
+    @Test
+    void rejectsUnknownOpcode() {
+        ByteBuffer in = ByteBuffer.wrap(new byte[]{2, 9, 'x'});
+        assertThrows(StreamCorruptedException.class, () -> codec.decode(in));
+    }
+
+    @Test
+    void readBodyStopsAtFrameBoundary() throws IOException {
+        byte[] frame = bytes(FrameCodec.encodeText("PONG:7"));
+        ByteArrayInputStream in = new ByteArrayInputStream(frame);
+
+        byte[] body = FrameCodec.readBody(in);
+        assertEquals(FrameCodec.OP_TEXT, body[0]);
+        assertEquals("PONG:7", FrameCodec.text(body));
+        assertNull(FrameCodec.readBody(in));
+    }
+
+    @Test
+    void readBodyFailsOnTruncatedFrame() {
+        byte[] frame = bytes(FrameCodec.encodeText("x".repeat(199)));
+
+        // 길이 varint 중간에서 끊김
+        assertThrows(EOFException.class, () -> FrameCodec.readBody(new ByteArrayInputStream(frame, 0, 1)));
+        // 본문 중간에서 끊김
+        assertThrows(EOFException.class, () -> FrameCodec.readBody(new ByteArrayInputStream(frame, 0, frame.length - 1)));
+    }
+
+    @Test
+    void readBodyRejectsOversizedLength() {
+        ByteBuffer buf = ByteBuffer.allocate(8);
+        FrameCodec.writeVarint(buf, WireCodec.MAX_MESSAGE_BYTES + 1);
+        assertThrows(StreamCorruptedException.class,
+                () -> FrameCodec.readBody(new ByteArrayInputStream(buf.array(), 0, buf.position())));
+    }
+
+    @Test
+    void emptyBoardPacksToThirteenBytes() throws IOException {
+        int[][] board = new int[FrameCodec.BOARD_SIZE][FrameCodec.BOARD_SIZE];
+        byte[] packed = FrameCodec.packBoard(board);
+
+        // 400칸 = 32칸 구간 12개 + 16칸 구간 1개
+        assertEquals(13, packed.length);
+        for (int i = 0; i < 12; i++) assertEquals(31, packed[i]);
+        assertEquals(15, packed[12]);
+        assertRoundTrip(board);
+    }
+
+    @Test
+    void runsSplitAtThirtyTwoCells() throws IOException {
+        // 행 우선으로 색 1 이 정확히 32칸, 색 2 가 33칸, 나머지는 빈칸
+        int[][] board = new int[FrameCodec.BOARD_SIZE][FrameCodec.BOARD_SIZE];
+        for (int i = 0; i < 32; i++) set(board, i, 1);
+        for (int i = 32; i < 65; i++) set(board, i, 2);
+        byte[] packed = FrameCodec.packBoard(board);
+
+        assertEquals((byte) (1 << 5 | 31), packed[0]);
+        assertEquals((byte) (2 << 5 | 31), packed[1]);
+        assertEquals((byte) (2 << 5), packed[2]);
+        assertEquals((byte) 31, packed[3]);
+        assertRoundTrip(board);
+    }
+
+    @Test
+    void randomBoardsRoundTrip() throws IOException {
+        Random random = new Random(20240917L);
+        int[][] board = new int[FrameCodec.BOARD_SIZE][FrameCodec.BOARD_SIZE];
+        for (int n = 0; n < 500; n++) {
+            // 빈칸 비율을 바꿔 가며 긴 구간과 짧은 구간을 고루 만든다.
+            int fill = random.nextInt(101);
+            for (int i = 0; i < FrameCodec.BOARD_SIZE * FrameCodec.BOARD_SIZE; i++) {
+                set(board, i, random.nextInt(100) < fill ? 1 + random.nextInt(4) : 0);
+            }
+            assertRoundTrip(board);
+        }
+    }
+
+    @Test
+    void boardFrameCarriesSeq() throws IOException {
+        int[][] board = new int[FrameCodec.BOARD_SIZE][FrameCodec.BOARD_SIZE];
+        board[0][0] = 1;
+        board[19][19] = 4;
+        byte[] frame = bytes(codec.encodeBoard(300, FrameCodec.packBoard(board)));
+
+        byte[] body = FrameCodec.readBody(new ByteArrayInputStream(frame));
+        assertEquals(FrameCodec.OP_BOARD, body[0]);
+        int[][] read = new int[FrameCodec.BOARD_SIZE][FrameCodec.BOARD_SIZE];
+        assertEquals(300, FrameCodec.readBoard(body, read));
+        assertArrayEquals(board, read);
+    }
+
+    @Test
+    void unpackRejectsWrongCellCount() {
+        int[][] board = new int[FrameCodec.BOARD_SIZE][FrameCodec.BOARD_SIZE];
+        byte[] packed = FrameCodec.packBoard(board);
+
+        assertThrows(StreamCorruptedException.class, () -> FrameCodec.unpackBoard(packed, 0, packed.length - 1, board));
+        byte[] longer = Arrays.copyOf(packed, packed.length + 1);
+        assertThrows(StreamCorruptedException.class, () -> FrameCodec.unpackBoard(longer, 0, longer.length, board));
+    }
+
+    private static void assertRoundTrip(int[][] board) throws IOException {
+        byte[] packed = FrameCodec.packBoard(board);
+        int[][] unpacked = new int[FrameCodec.BOARD_SIZE][FrameCodec.BOARD_SIZE];
+        FrameCodec.unpackBoard(packed, 0, packed.length, unpacked);
+        assertArrayEquals(board, unpacked);
+    }
+
+    private static void set(int[][] board, int cell, int color) {
+        board[cell / FrameCodec.BOARD_SIZE][cell % FrameCodec.BOARD_SIZE] = color;
+    }
+
+    private static byte[] bytes(ByteBuffer buf) {
+        byte[] out = new byte[buf.remaining()];
+        buf.get(out);
+        return out;
+    }
+}
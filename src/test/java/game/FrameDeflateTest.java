@@ -0,0 +1,87 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameDeflateTest {
+    @Test
+    void manyFramesRoundTripOnOneStream() throws IOException {
+        FrameDeflate.Compressor compressor = new FrameDeflate.Compressor();
+        FrameDeflate.Decompressor decompressor = new FrameDeflate.Decompressor();
+        Random random = new Random(7L);
+        try {
+            for (int n = 0; n < 300; n++) {
+                String message = message(random, n);
+                ByteBuffer frame = FrameCodec.encodeText(message);
+                int frameLength = frame.remaining();
+                ByteBuffer sent = compressor.compress(frame);
+
+                byte[] body = FrameCodec.readBody(new ByteArrayInputStream(bytes(sent)));
+                if (frameLength <= FrameDeflate.THRESHOLD) {
+                    assertSame(frame, sent);
+                    assertEquals(FrameCodec.OP_TEXT, body[0]);
+                } else {
+                    assertEquals(FrameCodec.OP_DEFLATE, body[0]);
+                    assertFalse(endsWithSyncTail(body), "SYNC_FLUSH 꼬리가 남아 있음: " + n);
+                    body = decompressor.inflate(body);
+                }
+                assertEquals(message, FrameCodec.text(body), "프레임 " + n);
+            }
+        } finally {
+            compressor.end();
+        }
+    }
+
+    @Test
+    void repeatedFrameUsesEarlierFramesAsDictionary() throws IOException {
+        FrameDeflate.Compressor compressor = new FrameDeflate.Compressor();
+        FrameDeflate.Decompressor decompressor = new FrameDeflate.Decompressor();
+        String message = randomText(new Random(11L), 2000);
+        try {
+            byte[] first = bytes(compressor.compress(FrameCodec.encodeText(message)));
+            byte[] second = bytes(compressor.compress(FrameCodec.encodeText(message)));
+
+            // 같은 내용이 창 안에 있으므로 두 번째는 역참조 몇 개로 줄어든다.
+            assertTrue(second.length * 10 < first.length, first.length + " -> " + second.length);
+            assertEquals(message, FrameCodec.text(decompressor.inflate(FrameCodec.readBody(new ByteArrayInputStream(first)))));
+            assertEquals(message, FrameCodec.text(decompressor.inflate(FrameCodec.readBody(new ByteArrayInputStream(second)))));
+        } finally {
+            compressor.end();
+        }
+    }
+
+    // 대부분은 압축 기준 언저리의 방 목록/점수판 비슷한 문자열이고, 가끔 양쪽 버퍼를 키울 만큼 큰 무작위 문자열을 섞는다.
+    private static String message(Random random, int n) {
+        if (n % 37 == 5) return "CHAT:" + randomText(random, 10_000 + random.nextInt(30_000));
+        if (n % 10 == 0) return "PONG:" + n;
+        StringBuilder sb = new StringBuilder("ROOM_LIST");
+        int rooms = random.nextInt(20);
+        for (int i = 0; i < rooms; i++) {
+            sb.append(':').append(i).append(",방").append(random.nextInt(100)).append(",WAITING,").append(random.nextInt(4) + 1).append("/4");
+        }
+        return sb.toString();
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) sb.append((char) ('!' + random.nextInt(94)));
+        return sb.toString();
+    }
+
+    private static boolean endsWithSyncTail(byte[] body) {
+        int n = body.length;
+        return n >= 5 && body[n - 4] == 0 && body[n - 3] == 0 && body[n - 2] == (byte) 0xFF && body[n - 1] == (byte) 0xFF;
+    }
+
+    private static byte[] bytes(ByteBuffer buf) {
+        byte[] out = new byte[buf.remaining()];
+        buf.duplicate().get(out);
+        return out;
+    }
+}